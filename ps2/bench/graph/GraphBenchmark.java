@@ -0,0 +1,161 @@
+package graph;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single-operation costs of the Graph implementations on random graphs of
+ * varying size and density.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    @Param({"edges", "vertices", "concurrent", "frozen", "offheap", "sharded", "adaptive"})
+    public String implementation;
+
+    @Param({"1000", "100000"})
+    public int vertexCount;
+
+    @Param({"4", "32"})
+    public int averageDegree;
+
+    private Graph<String> graph;
+    private String[] labels;
+    private SplittableRandom random;
+    private int fresh;
+
+    private static Supplier<Graph<String>> factory(String implementation) {
+        switch (implementation) {
+        case "edges": return ConcreteEdgesGraph::new;
+        case "vertices": return ConcreteVerticesGraph::new;
+        case "concurrent": return ConcurrentGraph::new;
+        case "frozen": return ConcreteEdgesGraph::new;
+        case "offheap": return () -> OffHeapGraph.direct(LabelCodec.utf8());
+        case "sharded": return ShardedGraph::new;
+        case "adaptive": return AdaptiveGraph::new;
+        default: throw new IllegalArgumentException("unknown implementation: " + implementation);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void buildGraph() {
+        random = new SplittableRandom(42);
+        labels = new String[vertexCount];
+        Graph<String> built = factory(implementation).get();
+        for (int i = 0; i < vertexCount; i++) {
+            labels[i] = "v" + i;
+            built.add(labels[i]);
+        }
+        long edgeCount = (long) vertexCount * averageDegree;
+        for (long e = 0; e < edgeCount; e++) {
+            built.increment(randomLabel(), randomLabel(), 1 + random.nextInt(10));
+        }
+        graph = implementation.equals("frozen") ? FrozenGraph.freeze(built) : built;
+    }
+
+    private String randomLabel() {
+        return labels[random.nextInt(labels.length)];
+    }
+
+    private boolean mutable() {
+        return !(graph instanceof FrozenGraph);
+    }
+
+    @Benchmark
+    public Map<String, Integer> targets() {
+        return graph.targets(randomLabel());
+    }
+
+    @Benchmark
+    public Map<String, Integer> sources() {
+        return graph.sources(randomLabel());
+    }
+
+    @Benchmark
+    public void forEachTarget(Blackhole blackhole) {
+        graph.forEachTarget(randomLabel(), (target, weight) -> blackhole.consume(weight));
+    }
+
+    @Benchmark
+    public long edgeWeightSum() {
+        return graph.edges().mapToLong(Edge::weight).sum();
+    }
+
+    @Benchmark
+    public long parallelEdgeWeightSum() {
+        return graph.edges().parallel().mapToLong(Edge::weight).sum();
+    }
+
+    @Benchmark
+    public int weight() {
+        return graph.weight(randomLabel(), randomLabel());
+    }
+
+    @Benchmark
+    public int set() {
+        return mutable() ? graph.set(randomLabel(), randomLabel(), 1 + random.nextInt(10)) : 0;
+    }
+
+    @Benchmark
+    public int increment() {
+        return mutable() ? graph.increment(randomLabel(), randomLabel(), 1) : 0;
+    }
+
+    @Benchmark
+    public boolean add() {
+        return mutable() && graph.add("fresh" + fresh++);
+    }
+
+    @Benchmark
+    public boolean remove(Removal removal) {
+        return mutable() && graph.remove(removal.vertex);
+    }
+
+    /**
+     * Picks a vertex to remove before each call of remove(), and puts the
+     * previously removed vertex back, outside the measured region.
+     */
+    @State(Scope.Thread)
+    public static class Removal {
+        private String vertex;
+        private Map<String, Integer> targets;
+        private Map<String, Integer> sources;
+
+        @Setup(Level.Invocation)
+        public void pick(GraphBenchmark benchmark) {
+            Graph<String> graph = benchmark.graph;
+            if (!benchmark.mutable()) {
+                return;
+            }
+            if (vertex != null) {
+                graph.add(vertex);
+                targets.forEach((target, weight) -> graph.set(vertex, target, weight));
+                sources.forEach((source, weight) -> graph.set(source, vertex, weight));
+            }
+            vertex = benchmark.randomLabel();
+            targets = graph.targets(vertex);
+            sources = graph.sources(vertex);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package poet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GraphPoet corpus ingestion throughput and poem() latency on synthetic
+ * Zipf-distributed corpora.
+ *
+ * <p>Ingestion benchmarks report a "megabytes" secondary result, which JMH
+ * prints as MB of corpus read per second.
+ */
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphPoetBenchmark {
+
+    /**
+     * A corpus file generated once per trial.
+     */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        @Param({"1", "16"})
+        public int megabytes;
+
+        @Param({"50000"})
+        public int vocabulary;
+
+        Path file;
+        double size;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            file = Files.createTempFile("zipf-corpus", ".txt");
+            ZipfCorpus.writeFile(file, megabytes, vocabulary, 42);
+            size = Files.size(file) / (double) (1 << 20);
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Megabytes of corpus read, reported as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public double megabytes;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public GraphPoet ingestSequential(Corpus corpus, Throughput throughput) throws IOException {
+        GraphPoet poet = new GraphPoet(corpus.file);
+        throughput.megabytes += corpus.size;
+        return poet;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public GraphPoet ingestParallel(Corpus corpus, Throughput throughput) throws IOException {
+        GraphPoet poet = GraphPoet.parallel(corpus.file);
+        throughput.megabytes += corpus.size;
+        return poet;
+    }
+
+    /**
+     * A poet built from a corpus, and inputs drawn from the same distribution.
+     */
+    @State(Scope.Benchmark)
+    public static class Poet {
+        @Param({"0", "100000"})
+        public int bridgeIndexCapacity;
+
+        @Param({"0", "4096"})
+        public int poemCacheCapacity;
+
+        @Param({"20"})
+        public int inputWords;
+
+        GraphPoet poet;
+        String[] inputs;
+        List<String> inputList;
+        int next;
+
+        @Setup(Level.Trial)
+        public void build(Corpus corpus) throws IOException {
+            GraphPoet built = new GraphPoet(corpus.file);
+            poet = bridgeIndexCapacity > 0 ? built.withBridgeIndex(bridgeIndexCapacity) : built;
+            poet = poemCacheCapacity > 0 ? poet.withPoemCache(poemCacheCapacity) : poet;
+            ZipfCorpus words = new ZipfCorpus(corpus.vocabulary, 1.0, 7);
+            inputs = new String[1024];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = words.line(inputWords);
+            }
+            inputList = Arrays.asList(inputs);
+        }
+
+        String nextInput() {
+            next = (next + 1) & (inputs.length - 1);
+            return inputs[next];
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String poem(Poet poet) {
+        return poet.poet.poem(poet.nextInput());
+    }
+
+    /**
+     * Batch poems over all the inputs at once; divide the score by the
+     * number of inputs for the time per poem.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> poems(Poet poet) {
+        return poet.poet.poems(poet.inputList);
+    }
+}
@@ -0,0 +1,196 @@
+package poet;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the latency of a PoemServer under concurrent load, with no
+ * services other than the JDK.
+ *
+ * <p>A fixed number of client threads each send GET /poem requests one after
+ * another, with lines of a Zipf-distributed synthetic text as inputs, until
+ * the requested total has been sent. A tenth as many requests again are
+ * sent first as a warm-up and not measured. Latencies are measured at the
+ * client, and their exact percentiles are reported along with throughput.
+ */
+public class LoadTest {
+    private static final int VOCABULARY = 50_000;
+    private static final int CORPUS_MEGABYTES = 8;
+    private static final int WORDS_PER_INPUT = 12;
+    private static final long SEED = 42;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final URI base;
+
+    // Abstraction function:
+    //   Represents a load generator for the poem server at base.
+    // Representation invariant:
+    //   base is an absolute http URI
+    // Safety from rep exposure:
+    //   all fields are private and final
+    // Thread safety argument:
+    //   HttpClient is thread-safe, and URI is immutable
+
+    /**
+     * @param base URI of a running poem server, such as http://localhost:8080/
+     */
+    public LoadTest(URI base) {
+        this.base = base;
+    }
+
+    /**
+     * Send requests and measure their latencies.
+     *
+     * @param concurrency number of client threads, at least 1
+     * @param requests number of requests to measure
+     * @return latency of each successful measured request in nanoseconds,
+     *         sorted, and the number of failed requests as the last element
+     * @throws InterruptedException if interrupted while waiting for clients
+     */
+    public long[] run(int concurrency, int requests) throws InterruptedException {
+        send(concurrency, requests / 10, SEED - 1);
+        return send(concurrency, requests, SEED);
+    }
+
+    private long[] send(int concurrency, int requests, long seed) throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        List<long[]> latencies = new ArrayList<>();
+        List<int[]> counts = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            long[] mine = new long[requests / concurrency + (i < requests % concurrency ? 1 : 0)];
+            int[] count = new int[1];
+            ZipfCorpus inputs = new ZipfCorpus(VOCABULARY, 1.0, seed * 1_000 + i);
+            Thread worker = new Thread(() -> {
+                for (int sent = 0; sent < mine.length; sent++) {
+                    String input = URLEncoder.encode(inputs.line(WORDS_PER_INPUT), StandardCharsets.UTF_8);
+                    HttpRequest request = HttpRequest.newBuilder(base.resolve("/poem?text=" + input)).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        long elapsed = System.nanoTime() - start;
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        } else {
+                            mine[count[0]++] = elapsed;
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "load-client-" + i);
+            latencies.add(mine);
+            counts.add(count);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        int succeeded = 0;
+        for (int[] count : counts) {
+            succeeded += count[0];
+        }
+        long[] result = new long[succeeded + 1];
+        int next = 0;
+        for (int i = 0; i < concurrency; i++) {
+            System.arraycopy(latencies.get(i), 0, result, next, counts.get(i)[0]);
+            next += counts.get(i)[0];
+        }
+        Arrays.sort(result, 0, succeeded);
+        result[succeeded] = failures.get();
+        return result;
+    }
+
+    /**
+     * @return the server's /stats response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted while waiting for it
+     */
+    public String serverStats() throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(base.resolve("/stats")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    /**
+     * Run a load test from the command line and print a report.
+     *
+     * @param args target, and optionally concurrency (default 64) and number
+     *             of requests (default 20000); the target is the URI of a
+     *             running server, the path of a corpus file to serve in this
+     *             process, or "zipf" to serve a synthetic corpus in this process
+     * @throws IOException if the corpus cannot be read or the server cannot start
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("usage: LoadTest <http://host:port/|corpus|zipf> [concurrency] [requests]");
+            System.exit(2);
+        }
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        PoemServer server = null;
+        URI base;
+        if (args[0].startsWith("http:")) {
+            base = URI.create(args[0]);
+        } else {
+            GraphPoet poet = args[0].equals("zipf") ? zipfPoet() : GraphPoet.parallel(Paths.get(args[0]));
+            server = PoemServer.start(poet, new InetSocketAddress("localhost", 0));
+            base = URI.create("http://localhost:" + server.address().getPort() + "/");
+        }
+        try {
+            LoadTest test = new LoadTest(base);
+            long start = System.nanoTime();
+            long[] latencies = test.run(concurrency, requests);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            int succeeded = latencies.length - 1;
+            long[] sorted = Arrays.copyOf(latencies, succeeded);
+            System.out.printf(Locale.ROOT, "%d requests, %d failed, %d clients, %.2f s (%.0f requests/s incl. warm-up)%n",
+                    succeeded, latencies[succeeded], concurrency, seconds, requests * 1.1 / seconds);
+            System.out.printf(Locale.ROOT, "latency us: p50 %d  p90 %d  p99 %d  p99.9 %d  max %d%n",
+                    percentile(sorted, 0.5) / 1_000, percentile(sorted, 0.9) / 1_000,
+                    percentile(sorted, 0.99) / 1_000, percentile(sorted, 0.999) / 1_000,
+                    percentile(sorted, 1.0) / 1_000);
+            System.out.println("server: " + test.serverStats());
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static GraphPoet zipfPoet() {
+        StringWriter corpus = new StringWriter();
+        try {
+            new ZipfCorpus(VOCABULARY, 1.0, SEED).write(corpus, (long) CORPUS_MEGABYTES << 20);
+            return new GraphPoet(new StringReader(corpus.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package poet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic corpora whose word frequencies follow a Zipf distribution,
+ * so benchmarks can be reproduced offline without shipping real text.
+ *
+ * <p>The word of rank k (counting from 1) is drawn with probability
+ * proportional to 1 / k^exponent. Words are made of lowercase letters, with a
+ * capitalized word at the start of each line. The same seed always yields the
+ * same corpus.
+ */
+public class ZipfCorpus {
+    private static final int WORDS_PER_LINE = 12;
+
+    private final String[] words;
+    private final double[] cumulative;
+    private final SplittableRandom random;
+
+    // Abstraction function:
+    //   Represents an endless stream of words, the word words[k] being drawn with
+    //   probability cumulative[k] - cumulative[k-1] (cumulative[-1] = 0).
+    // Representation invariant:
+    //   words.length == cumulative.length > 0
+    //   cumulative is non-decreasing and its last element is 1
+    // Safety from rep exposure:
+    //   all fields are private and final, and the arrays are never returned
+
+    /**
+     * Make a generator.
+     *
+     * @param vocabulary number of distinct words, at least 1
+     * @param exponent Zipf exponent, typically near 1
+     * @param seed seed of the pseudo-random word choices
+     */
+    public ZipfCorpus(int vocabulary, double exponent, long seed) {
+        if (vocabulary < 1) {
+            throw new IllegalArgumentException("vocabulary must be positive: " + vocabulary);
+        }
+        this.words = new String[vocabulary];
+        this.cumulative = new double[vocabulary];
+        double total = 0;
+        for (int k = 0; k < vocabulary; k++) {
+            words[k] = word(k);
+            total += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < vocabulary; k++) {
+            cumulative[k] /= total;
+        }
+        cumulative[vocabulary - 1] = 1.0;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /*
+     * Spell a rank as a pronounceable-enough lowercase word.
+     */
+    private static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        int n = rank;
+        do {
+            word.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return word.append(rank % 2 == 0 ? "e" : "o").toString();
+    }
+
+    /**
+     * @return the next word of the stream
+     */
+    public String next() {
+        int k = Arrays.binarySearch(cumulative, random.nextDouble());
+        return words[k < 0 ? Math.min(-k - 1, words.length - 1) : k];
+    }
+
+    /**
+     * Make a line of text from the stream.
+     *
+     * @param wordCount number of words in the line
+     * @return wordCount words separated by single spaces
+     */
+    public String line(int wordCount) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(next());
+        }
+        return line.toString();
+    }
+
+    /**
+     * Write lines of text from the stream until at least a given number of
+     * characters have been written.
+     *
+     * @param out destination of the text
+     * @param characters minimum number of characters to write
+     * @throws IOException if out cannot be written
+     */
+    public void write(Writer out, long characters) throws IOException {
+        long written = 0;
+        while (written < characters) {
+            String line = line(WORDS_PER_LINE);
+            line = Character.toUpperCase(line.charAt(0)) + line.substring(1) + "\n";
+            out.write(line);
+            written += line.length();
+        }
+    }
+
+    /**
+     * Write a corpus file.
+     *
+     * @param path destination file, overwritten if it exists
+     * @param megabytes approximate size of the file
+     * @param vocabulary number of distinct words
+     * @param seed seed of the pseudo-random word choices
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeFile(Path path, int megabytes, int vocabulary, long seed) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            new ZipfCorpus(vocabulary, 1.0, seed).write(out, (long) megabytes << 20);
+        }
+    }
+
+    /**
+     * Write a corpus file from the command line.
+     *
+     * @param args path, size in megabytes, and optionally vocabulary size
+     *             (default 50000) and seed (default 42)
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ZipfCorpus <path> <megabytes> [vocabulary] [seed]");
+            System.exit(2);
+        }
+        int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        writeFile(Paths.get(args[0]), Integer.parseInt(args[1]), vocabulary, seed);
+    }
+}
@@ -0,0 +1,473 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A mutable weighted directed graph that picks its own representation:
+ * sparse hashed adjacency, or a dense matrix of weights.
+ *
+ * <p>Every vertex is interned to a small int id. While the graph is small, or
+ * dense enough that a matrix is no bigger than the hash maps would be, edge
+ * weights live in one int[] indexed by source and target ids, so a lookup is
+ * an array read and an edge takes four bytes whether or not it exists.
+ * Otherwise each vertex keeps ObjectIntMaps of its edges out and in, as
+ * ConcreteVerticesGraph does. The graph checks its vertex and edge counts
+ * after every update and migrates when they cross a threshold; the
+ * thresholds for leaving a representation are looser than those for entering
+ * it, so a graph near a threshold does not flip back and forth, and each
+ * migration costs time in proportion to the edges added or removed since the
+ * last one. Migrating renumbers the vertices, so ids freed by removed
+ * vertices are reclaimed.
+ *
+ * <p>vertices() lists vertices in insertion order. In the dense
+ * representation sources() and targets() list neighbors in id order, in the
+ * sparse one in the order their edges were added. Not safe for use by
+ * concurrent threads.
+ */
+public class AdaptiveGraph<L> implements Graph<L> {
+    // A graph of up to ALWAYS_DENSE vertices is dense, whatever its edges
+    private static final int ALWAYS_DENSE = 32;
+    // Largest graph kept dense: a matrix of at most 16 MiB
+    private static final int MAX_DENSE = 2048;
+    // A graph becomes dense once it has n * n / DENSE_FILL edges, and becomes
+    // sparse again below n * n / SPARSE_FILL; a sparse edge costs several
+    // times a matrix cell
+    private static final int DENSE_FILL = 8;
+    private static final int SPARSE_FILL = 32;
+    private static final int MIN_CAPACITY = 16;
+
+    private final Map<L, Integer> ids = new LinkedHashMap<>();
+    private Object[] labels = new Object[MIN_CAPACITY];
+    private int[] freeIds = new int[MIN_CAPACITY];
+    private int freeCount = 0;
+    private int nextId = 0;
+    private int edgeCount = 0;
+    private boolean dense = true;
+
+    // Dense representation
+    private int[] matrix = new int[MIN_CAPACITY * MIN_CAPACITY];
+    private int[] outDegrees = new int[MIN_CAPACITY];
+    private int[] inDegrees = new int[MIN_CAPACITY];
+
+    // Sparse representation
+    private ObjectIntMap<L>[] outgoing;
+    private ObjectIntMap<L>[] incoming;
+
+    /**
+     * Abstraction function:
+     *   Represents the graph whose vertices are the keys of ids, in order. If
+     *   dense, it has an edge labels[s] -> labels[t] of weight
+     *   matrix[s * labels.length + t] for every positive such cell; otherwise
+     *   an edge labels[s] -> t of weight w for every entry (t, w) of
+     *   outgoing[s].
+     *
+     * Representation invariant:
+     *   - labels[ids.get(v)] == v for every vertex v; ids below nextId that are
+     *     not in ids are exactly freeIds[0..freeCount-1], whose labels are null.
+     *   - edgeCount is the number of edges.
+     *   - if dense: matrix.length == labels.length squared; rows and columns of
+     *     free ids are zero; outDegrees and inDegrees count the positive cells
+     *     of each row and column; outgoing and incoming are null.
+     *   - if sparse: matrix, outDegrees and inDegrees are null;
+     *     outgoing[s].get(t) == incoming[ids.get(t)].get(labels[s]) for every
+     *     edge, where a null map stands for an empty one; maps of free ids are null.
+     *
+     * Safety from rep exposure:
+     *   - all fields are private, and no array or map is ever returned.
+     *   - vertices() returns an unmodifiable view, sources() and targets() return copies.
+     */
+    private void checkRep() {
+        assert ids.size() == nextId - freeCount : "every id below nextId must be used or free";
+        assert edgeCount >= 0 : "edge count must not be negative";
+        assert dense == (matrix != null) && dense == (outgoing == null) : "exactly one representation";
+        assert !dense || matrix.length == labels.length * labels.length : "matrix must be square";
+    }
+
+    /**
+     * Make an empty graph.
+     */
+    public AdaptiveGraph() {
+        checkRep();
+    }
+
+    /**
+     * @return whether the graph currently keeps its edges in a weight matrix
+     */
+    public boolean isDense() {
+        return dense;
+    }
+
+    private int id(Object label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private L label(int id) {
+        return (L) labels[id];
+    }
+
+    private static boolean enterDense(int vertices, int edges) {
+        return vertices <= ALWAYS_DENSE
+                || vertices <= MAX_DENSE / 2 && (long) edges * DENSE_FILL >= (long) vertices * vertices;
+    }
+
+    private static boolean stayDense(int vertices, int edges) {
+        return vertices <= 2 * ALWAYS_DENSE
+                || vertices <= MAX_DENSE && (long) edges * SPARSE_FILL >= (long) vertices * vertices;
+    }
+
+    /*
+     * Migrate to the representation the current counts call for.
+     */
+    private void adapt() {
+        if (dense && !stayDense(ids.size(), edgeCount)) {
+            toSparse();
+        } else if (!dense && enterDense(ids.size(), edgeCount)) {
+            toDense();
+        }
+    }
+
+    /*
+     * Return the smallest allowed capacity that holds count vertices.
+     */
+    private static int capacityFor(int count) {
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(count, 1) * 2 - 1));
+    }
+
+    /*
+     * Number the vertices 0..n-1 in order, and return, for each new id, the
+     * vertex's old id.
+     */
+    private int[] renumber(int capacity) {
+        int[] oldIds = new int[ids.size()];
+        labels = new Object[capacity];
+        int next = 0;
+        for (Map.Entry<L, Integer> vertex : ids.entrySet()) {
+            oldIds[next] = vertex.getValue();
+            labels[next] = vertex.getKey();
+            vertex.setValue(next++);
+        }
+        nextId = next;
+        freeIds = new int[capacity];
+        freeCount = 0;
+        return oldIds;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void toSparse() {
+        int oldCapacity = labels.length;
+        int[] oldMatrix = matrix;
+        int[] oldIds = renumber(capacityFor(ids.size()));
+        int[] newIds = new int[oldCapacity];
+        for (int s = 0; s < oldIds.length; s++) {
+            newIds[oldIds[s]] = s;
+        }
+        outgoing = new ObjectIntMap[labels.length];
+        incoming = new ObjectIntMap[labels.length];
+        for (int s = 0; s < oldIds.length; s++) {
+            int row = oldIds[s] * oldCapacity;
+            for (int t = 0; t < oldIds.length; t++) {
+                int weight = oldMatrix[row + oldIds[t]];
+                if (weight > 0) {
+                    out(s).put(label(t), weight);
+                    in(t).put(label(s), weight);
+                }
+            }
+        }
+        matrix = null;
+        outDegrees = null;
+        inDegrees = null;
+        dense = false;
+    }
+
+    private void toDense() {
+        ObjectIntMap<L>[] oldOutgoing = outgoing;
+        int[] oldIds = renumber(capacityFor(ids.size()));
+        int capacity = labels.length;
+        matrix = new int[capacity * capacity];
+        outDegrees = new int[capacity];
+        inDegrees = new int[capacity];
+        for (int s = 0; s < oldIds.length; s++) {
+            ObjectIntMap<L> out = oldOutgoing[oldIds[s]];
+            if (out != null) {
+                int row = s * capacity;
+                out.forEach((target, weight) -> {
+                    int t = ids.get(target);
+                    matrix[row + t] = weight;
+                    inDegrees[t]++;
+                });
+                outDegrees[s] = out.size();
+            }
+        }
+        outgoing = null;
+        incoming = null;
+        dense = true;
+    }
+
+    private ObjectIntMap<L> out(int id) {
+        if (outgoing[id] == null) {
+            outgoing[id] = new ObjectIntMap<>();
+        }
+        return outgoing[id];
+    }
+
+    private ObjectIntMap<L> in(int id) {
+        if (incoming[id] == null) {
+            incoming[id] = new ObjectIntMap<>();
+        }
+        return incoming[id];
+    }
+
+    private void grow() {
+        int oldCapacity = labels.length;
+        int capacity = 2 * oldCapacity;
+        labels = Arrays.copyOf(labels, capacity);
+        freeIds = Arrays.copyOf(freeIds, capacity);
+        if (dense) {
+            int[] grown = new int[capacity * capacity];
+            for (int s = 0; s < nextId; s++) {
+                System.arraycopy(matrix, s * oldCapacity, grown, s * capacity, nextId);
+            }
+            matrix = grown;
+            outDegrees = Arrays.copyOf(outDegrees, capacity);
+            inDegrees = Arrays.copyOf(inDegrees, capacity);
+        } else {
+            outgoing = Arrays.copyOf(outgoing, capacity);
+            incoming = Arrays.copyOf(incoming, capacity);
+        }
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        if (ids.containsKey(vertex)) {
+            return false;
+        }
+        if (dense && !stayDense(ids.size() + 1, edgeCount)) {
+            // Leave before the matrix would have to grow
+            toSparse();
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (nextId == labels.length) {
+                grow();
+            }
+            id = nextId++;
+        }
+        ids.put(vertex, id);
+        labels[id] = vertex;
+        adapt();
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        int id = id(vertex);
+        if (id < 0) {
+            return false;
+        }
+        if (dense) {
+            int capacity = labels.length;
+            for (int t = 0; t < nextId; t++) {
+                if (matrix[id * capacity + t] > 0) {
+                    matrix[id * capacity + t] = 0;
+                    inDegrees[t]--;
+                    edgeCount--;
+                }
+            }
+            for (int s = 0; s < nextId; s++) {
+                if (matrix[s * capacity + id] > 0) {
+                    matrix[s * capacity + id] = 0;
+                    outDegrees[s]--;
+                    edgeCount--;
+                }
+            }
+            outDegrees[id] = 0;
+            inDegrees[id] = 0;
+        } else {
+            ObjectIntMap<L> out = outgoing[id];
+            if (out != null) {
+                edgeCount -= out.size();
+                out.forEach((target, weight) -> incoming[ids.get(target)].remove(vertex));
+            }
+            // A loop was removed from both maps above
+            ObjectIntMap<L> in = incoming[id];
+            if (in != null) {
+                edgeCount -= in.size();
+                in.forEach((source, weight) -> outgoing[ids.get(source)].remove(vertex));
+            }
+            outgoing[id] = null;
+            incoming[id] = null;
+        }
+        ids.remove(vertex);
+        labels[id] = null;
+        freeIds[freeCount++] = id;
+        adapt();
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        int previous = weight(source, target);
+        if (weight > 0) {
+            // Adding vertices may migrate and renumber, so look ids up after
+            add(source);
+            add(target);
+        } else if (previous == 0) {
+            return 0;
+        }
+        int s = ids.get(source);
+        int t = ids.get(target);
+        if (dense) {
+            int capacity = labels.length;
+            matrix[s * capacity + t] = Math.max(weight, 0);
+            if (previous == 0) {
+                outDegrees[s]++;
+                inDegrees[t]++;
+                edgeCount++;
+            } else if (weight <= 0) {
+                outDegrees[s]--;
+                inDegrees[t]--;
+                edgeCount--;
+            }
+        } else if (weight > 0) {
+            out(s).put(target, weight);
+            in(t).put(source, weight);
+            edgeCount += previous == 0 ? 1 : 0;
+        } else {
+            outgoing[s].remove(target);
+            incoming[t].remove(source);
+            edgeCount--;
+        }
+        adapt();
+        checkRep();
+        return previous;
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
+        int weight = Math.max(weight(source, target) + delta, 0);
+        set(source, target, weight);
+        return weight;
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        Map<L, Integer> sources = new LinkedHashMap<>();
+        forEachSource(target, sources::put);
+        return sources;
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        Map<L, Integer> targets = new LinkedHashMap<>();
+        forEachTarget(source, targets::put);
+        return targets;
+    }
+
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        int s = id(source);
+        if (s < 0) {
+            return;
+        }
+        if (dense) {
+            int row = s * labels.length;
+            for (int t = 0, left = outDegrees[s]; left > 0; t++) {
+                int weight = matrix[row + t];
+                if (weight > 0) {
+                    action.accept(label(t), weight);
+                    left--;
+                }
+            }
+        } else if (outgoing[s] != null) {
+            outgoing[s].forEach(action);
+        }
+    }
+
+    @Override
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        int t = id(target);
+        if (t < 0) {
+            return;
+        }
+        if (dense) {
+            int capacity = labels.length;
+            for (int s = 0, left = inDegrees[t]; left > 0; s++) {
+                int weight = matrix[s * capacity + t];
+                if (weight > 0) {
+                    action.accept(label(s), weight);
+                    left--;
+                }
+            }
+        } else if (incoming[t] != null) {
+            incoming[t].forEach(action);
+        }
+    }
+
+    @Override
+    public int weight(L source, L target) {
+        int s = id(source);
+        int t = id(target);
+        if (s < 0 || t < 0) {
+            return 0;
+        }
+        if (dense) {
+            return matrix[s * labels.length + t];
+        }
+        return outgoing[s] == null ? 0 : outgoing[s].get(target);
+    }
+
+    @Override
+    public int outDegree(L source) {
+        int s = id(source);
+        if (s < 0) {
+            return 0;
+        }
+        return dense ? outDegrees[s] : outgoing[s] == null ? 0 : outgoing[s].size();
+    }
+
+    @Override
+    public int inDegree(L target) {
+        int t = id(target);
+        if (t < 0) {
+            return 0;
+        }
+        return dense ? inDegrees[t] : incoming[t] == null ? 0 : incoming[t].size();
+    }
+
+    /**
+     * @return number of edges in this graph
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Graph with vertices:\n");
+        for (L vertex : ids.keySet()) {
+            builder.append(vertex).append("\n");
+        }
+        builder.append("And edges:\n");
+        for (L vertex : ids.keySet()) {
+            forEachTarget(vertex, (target, weight) ->
+                    builder.append(new Edge<>(vertex, target, weight)).append("\n"));
+        }
+        return builder.toString();
+    }
+}
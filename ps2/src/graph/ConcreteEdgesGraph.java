@@ -1,32 +1,49 @@
 package graph;
 
 import java.util.*;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
 
 /**
  * An implementation of a weighted directed graph with generic vertex labels,
  * represented by a set of vertices and a list of edges.
+ *
+ * <p>The edges are indexed twice, once by source and once by target, so that
+ * every operation costs time proportional to the degree of the vertices it
+ * touches rather than to the total number of edges in the graph.
  */
 public class ConcreteEdgesGraph<L> implements Graph<L> {
-    private final Set<L> vertices = new HashSet<>();
-    private final List<Edge<L>> edges = new ArrayList<>();
+    private final Set<L> vertices = new LinkedHashSet<>();
+    private final Map<L, Map<L, Edge<L>>> outgoing = new HashMap<>();
+    private final Map<L, Map<L, Edge<L>>> incoming = new HashMap<>();
 
     /**
      * Abstraction function:
      *   Represents a weighted directed graph with vertices labeled by any type L,
-     *   where each edge connects two vertices with a given weight.
+     *   where each edge connects two vertices with a given weight. The edges of
+     *   the graph are the values of outgoing (equivalently, of incoming).
      *
      * Representation invariant:
      *   - vertices contains unique, non-null labels.
-     *   - edges contains unique, non-null edges where each edge weight is positive,
-     *     and edge endpoints exist in vertices.
+     *   - every edge weight is positive, and edge endpoints exist in vertices.
+     *   - outgoing.get(s).get(t) == incoming.get(t).get(s) for every edge s -> t,
+     *     and an edge is stored under its own source and target labels.
+     *   - outgoing and incoming contain no empty inner maps.
      *
      * Safety from rep exposure:
-     *   - vertices and edges are private and final.
+     *   - vertices, outgoing and incoming are private and final.
+     *   - vertices() returns an unmodifiable view, sources() and targets() return copies.
      *   - Edge is immutable, ensuring edges cannot be modified externally.
      */
-    private void checkRep() {
-        for (Edge<L> edge : edges) {
-            assert vertices.contains(edge.from()) && vertices.contains(edge.to()) :
+    private void checkRep(L source, L target) {
+        assert source != null && target != null : "vertices must not be null";
+        Map<L, Edge<L>> out = outgoing.get(source);
+        Map<L, Edge<L>> in = incoming.get(target);
+        Edge<L> edge = out == null ? null : out.get(target);
+        assert edge == (in == null ? null : in.get(source)) : "Edge indexes must agree";
+        assert out == null || !out.isEmpty() : "Edge indexes must not hold empty maps";
+        if (edge != null) {
+            assert vertices.contains(source) && vertices.contains(target) :
                     "Edge endpoints must exist in vertices";
             assert edge.weight() > 0 : "Edge weight must be positive";
         }
@@ -35,38 +52,96 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     @Override
     public boolean add(L vertex) {
         boolean added = vertices.add(vertex);
-        checkRep();
+        checkRep(vertex, vertex);
         return added;
     }
 
     @Override
     public boolean remove(L vertex) {
         boolean removed = vertices.remove(vertex);
-        edges.removeIf(edge -> edge.from().equals(vertex) || edge.to().equals(vertex));
-        checkRep();
+        Map<L, Edge<L>> out = outgoing.remove(vertex);
+        if (out != null) {
+            for (L target : out.keySet()) {
+                unlink(incoming, target, vertex);
+                checkRep(vertex, target);
+            }
+        }
+        Map<L, Edge<L>> in = incoming.remove(vertex);
+        if (in != null) {
+            for (L source : in.keySet()) {
+                unlink(outgoing, source, vertex);
+                checkRep(source, vertex);
+            }
+        }
+        checkRep(vertex, vertex);
         return removed;
     }
 
     @Override
     public int set(L source, L target, int weight) {
         int previousWeight = 0;
-        Optional<Edge<L>> existingEdge = edges.stream()
-                .filter(edge -> edge.from().equals(source) && edge.to().equals(target))
-                .findFirst();
-        if (existingEdge.isPresent()) {
-            previousWeight = existingEdge.get().weight();
-            edges.remove(existingEdge.get());
+        Map<L, Edge<L>> out = outgoing.get(source);
+        Edge<L> existingEdge = out == null ? null : out.get(target);
+        if (existingEdge != null) {
+            previousWeight = existingEdge.weight();
         }
 
         if (weight > 0) {
-            edges.add(new Edge<>(source, target, weight));
+            Edge<L> edge = new Edge<>(source, target, weight);
             vertices.add(source);
             vertices.add(target);
+            outgoing.computeIfAbsent(source, k -> new LinkedHashMap<>()).put(target, edge);
+            incoming.computeIfAbsent(target, k -> new LinkedHashMap<>()).put(source, edge);
+        } else if (existingEdge != null) {
+            unlink(outgoing, source, target);
+            unlink(incoming, target, source);
         }
-        checkRep();
+        checkRep(source, target);
         return previousWeight;
     }
 
+    @Override
+    public int increment(L source, L target, int delta) {
+        Map<L, Edge<L>> out = outgoing.get(source);
+        if (out == null) {
+            if (delta <= 0) {
+                return 0;
+            }
+            out = new LinkedHashMap<>();
+            outgoing.put(source, out);
+        }
+        Edge<L> edge = out.compute(target, (t, existing) -> {
+            int weight = (existing == null ? 0 : existing.weight()) + delta;
+            return weight > 0 ? new Edge<>(source, t, weight) : null;
+        });
+        if (edge != null) {
+            vertices.add(source);
+            vertices.add(target);
+            incoming.computeIfAbsent(target, k -> new LinkedHashMap<>()).put(source, edge);
+        } else {
+            if (out.isEmpty()) {
+                outgoing.remove(source);
+            }
+            unlink(incoming, target, source);
+        }
+        checkRep(source, target);
+        return edge == null ? 0 : edge.weight();
+    }
+
+    /*
+     * Remove the entry for key from index.get(vertex), dropping the inner map
+     * once it becomes empty.
+     */
+    private static <L> void unlink(Map<L, Map<L, Edge<L>>> index, L vertex, L key) {
+        Map<L, Edge<L>> edges = index.get(vertex);
+        if (edges != null) {
+            edges.remove(key);
+            if (edges.isEmpty()) {
+                index.remove(vertex);
+            }
+        }
+    }
+
     @Override
     public Set<L> vertices() {
         return Collections.unmodifiableSet(vertices);
@@ -74,26 +149,61 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
 
     @Override
     public Map<L, Integer> sources(L target) {
-        Map<L, Integer> sources = new HashMap<>();
-        for (Edge<L> edge : edges) {
-            if (edge.to().equals(target)) {
-                sources.put(edge.from(), edge.weight());
-            }
+        Map<L, Integer> sources = new LinkedHashMap<>();
+        for (Edge<L> edge : incoming.getOrDefault(target, Collections.emptyMap()).values()) {
+            sources.put(edge.from(), edge.weight());
         }
         return sources;
     }
 
     @Override
     public Map<L, Integer> targets(L source) {
-        Map<L, Integer> targets = new HashMap<>();
-        for (Edge<L> edge : edges) {
-            if (edge.from().equals(source)) {
-                targets.put(edge.to(), edge.weight());
-            }
+        Map<L, Integer> targets = new LinkedHashMap<>();
+        for (Edge<L> edge : outgoing.getOrDefault(source, Collections.emptyMap()).values()) {
+            targets.put(edge.to(), edge.weight());
         }
         return targets;
     }
 
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        for (Edge<L> edge : outgoing.getOrDefault(source, Collections.emptyMap()).values()) {
+            action.accept(edge.to(), edge.weight());
+        }
+    }
+
+    @Override
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        for (Edge<L> edge : incoming.getOrDefault(target, Collections.emptyMap()).values()) {
+            action.accept(edge.from(), edge.weight());
+        }
+    }
+
+    @Override
+    public int weight(L source, L target) {
+        Map<L, Edge<L>> out = outgoing.get(source);
+        Edge<L> edge = out == null ? null : out.get(target);
+        return edge == null ? 0 : edge.weight();
+    }
+
+    @Override
+    public int outDegree(L source) {
+        return outgoing.getOrDefault(source, Collections.emptyMap()).size();
+    }
+
+    @Override
+    public int inDegree(L target) {
+        return incoming.getOrDefault(target, Collections.emptyMap()).size();
+    }
+
+    /**
+     * @return the edges of this graph, grouped by source in no particular order
+     */
+    @Override
+    public Stream<Edge<L>> edges() {
+        return outgoing.values().stream().flatMap(out -> out.values().stream());
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder("Graph with vertices:\n");
@@ -101,10 +211,11 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
             builder.append(vertex).append("\n");
         }
         builder.append("And edges:\n");
-        for (Edge<L> edge : edges) {
-            builder.append(edge.toString()).append("\n");
+        for (L vertex : vertices) {
+            for (Edge<L> edge : outgoing.getOrDefault(vertex, Collections.emptyMap()).values()) {
+                builder.append(edge.toString()).append("\n");
+            }
         }
         return builder.toString();
     }
 }
-
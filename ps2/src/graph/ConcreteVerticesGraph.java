@@ -1,40 +1,47 @@
 package graph;
 
 import java.util.*;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
 
 /**
  * An implementation of a directed, weighted graph with generic vertex labels,
  * using vertices represented as Vertex objects.
+ *
+ * <p>Vertices are found through a hash index on their labels, and each vertex
+ * records its incoming as well as its outgoing edges, so every operation costs
+ * time proportional to the degree of the vertices it touches.
  */
 public class ConcreteVerticesGraph<L> implements Graph<L> {
-    private final List<Vertex<L>> vertices = new ArrayList<>();
+    private final Map<L, Vertex<L>> vertices = new LinkedHashMap<>();
 
     /**
      * Abstraction function:
-     *   Represents a directed, weighted graph with vertices labeled by any type L.
+     *   Represents a directed, weighted graph with vertices labeled by any type L,
+     *   where vertices.get(s).getEdges().get(t) is the weight of the edge s -> t.
      *
      * Representation invariant:
-     *   - vertices contains unique, non-null Vertex objects with unique labels.
+     *   - vertices maps each unique, non-null label to a Vertex with that label.
+     *   - every edge target is a key of vertices.
+     *   - vertices.get(t).getSources().get(s) equals vertices.get(s).getEdges().get(t)
+     *     for every edge s -> t, and there are no other incoming entries.
      *
      * Safety from rep exposure:
-     *   - vertices is private and final.
+     *   - vertices is private and final, and Vertex objects are never returned.
      *   - Vertex provides a defensive copy of its edges.
      */
-    private void checkRep() {
-        Set<L> labels = new HashSet<>();
-        for (Vertex<L> vertex : vertices) {
-            assert vertex != null : "vertex must not be null";
-            assert labels.add(vertex.getLabel()) : "vertex labels must be unique";
-        }
+    private void checkRep(L label) {
+        Vertex<L> vertex = vertices.get(label);
+        assert vertex != null : "vertex must not be null";
+        assert vertex.getLabel().equals(label) : "vertex must be stored under its label";
     }
 
     private Vertex<L> getVertex(L label) {
-        for (Vertex<L> vertex : vertices) {
-            if (vertex.getLabel().equals(label)) {
-                return vertex;
-            }
-        }
-        return null;
+        return vertices.get(label);
+    }
+
+    private Vertex<L> getOrCreateVertex(L label) {
+        return vertices.computeIfAbsent(label, Vertex::new);
     }
 
     @Override
@@ -42,61 +49,78 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         if (getVertex(vertex) != null) {
             return false;
         }
-        vertices.add(new Vertex<>(vertex));
-        checkRep();
+        vertices.put(vertex, new Vertex<>(vertex));
+        checkRep(vertex);
         return true;
     }
 
     @Override
     public boolean remove(L vertex) {
-        Vertex<L> v = getVertex(vertex);
+        Vertex<L> v = vertices.remove(vertex);
         if (v == null) {
             return false;
         }
-        vertices.remove(v);
-        for (Vertex<L> other : vertices) {
-            other.setEdge(vertex, 0); // Remove all edges pointing to the removed vertex
-        }
-        checkRep();
+        v.forEachSource((source, weight) -> {
+            Vertex<L> other = getVertex(source);
+            if (other != null) {
+                other.setEdge(vertex, 0); // Remove the edges pointing to the removed vertex
+            }
+        });
+        v.forEachEdge((target, weight) -> {
+            Vertex<L> other = getVertex(target);
+            if (other != null) {
+                other.setSource(vertex, 0);
+            }
+        });
         return true;
     }
 
     @Override
     public int set(L source, L target, int weight) {
+        Vertex<L> sourceVertex = getOrCreateVertex(source);
+        Vertex<L> targetVertex = getOrCreateVertex(target);
+        int previousWeight = sourceVertex.setEdge(target, weight);
+        targetVertex.setSource(source, weight);
+        assert sourceVertex.getWeight(target) == targetVertex.getSourceWeight(source)
+                : "incoming edges must mirror outgoing edges";
+        checkRep(source);
+        return previousWeight;
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
         Vertex<L> sourceVertex = getVertex(source);
-        Vertex<L> targetVertex = getVertex(target);
         if (sourceVertex == null) {
-            sourceVertex = new Vertex<>(source);
-            vertices.add(sourceVertex);
+            if (delta <= 0) {
+                return 0;
+            }
+            sourceVertex = getOrCreateVertex(source);
         }
-        if (targetVertex == null) {
-            targetVertex = new Vertex<>(target);
-            vertices.add(targetVertex);
+        int weight = sourceVertex.addEdge(target, delta);
+        if (weight > 0) {
+            getOrCreateVertex(target).setSource(source, weight);
+        } else {
+            Vertex<L> targetVertex = getVertex(target);
+            if (targetVertex != null) {
+                targetVertex.setSource(source, 0);
+            }
         }
-        int previousWeight = sourceVertex.setEdge(target, weight);
-        checkRep();
-        return previousWeight;
+        checkRep(source);
+        return weight;
     }
 
     @Override
     public Set<L> vertices() {
-        Set<L> vertexLabels = new HashSet<>();
-        for (Vertex<L> vertex : vertices) {
-            vertexLabels.add(vertex.getLabel());
-        }
-        return vertexLabels;
+        return Collections.unmodifiableSet(vertices.keySet());
     }
 
     @Override
     public Map<L, Integer> sources(L target) {
-        Map<L, Integer> sources = new HashMap<>();
-        for (Vertex<L> vertex : vertices) {
-            Integer weight = vertex.getEdges().get(target);
-            if (weight != null) {
-                sources.put(vertex.getLabel(), weight);
-            }
+        Vertex<L> vertex = getVertex(target);
+        if (vertex == null) {
+            return Collections.emptyMap();
         }
-        return sources;
+        return vertex.getSources();
     }
 
     @Override
@@ -108,10 +132,53 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         return vertex.getEdges();
     }
 
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        Vertex<L> vertex = getVertex(source);
+        if (vertex != null) {
+            vertex.forEachEdge(action);
+        }
+    }
+
+    @Override
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        Vertex<L> vertex = getVertex(target);
+        if (vertex != null) {
+            vertex.forEachSource(action);
+        }
+    }
+
+    @Override
+    public int weight(L source, L target) {
+        Vertex<L> vertex = getVertex(source);
+        return vertex == null ? 0 : vertex.getWeight(target);
+    }
+
+    @Override
+    public int outDegree(L source) {
+        Vertex<L> vertex = getVertex(source);
+        return vertex == null ? 0 : vertex.outDegree();
+    }
+
+    @Override
+    public int inDegree(L target) {
+        Vertex<L> vertex = getVertex(target);
+        return vertex == null ? 0 : vertex.inDegree();
+    }
+
+    @Override
+    public Stream<Edge<L>> edges() {
+        return vertices.values().stream().flatMap(vertex -> {
+            Stream.Builder<Edge<L>> edges = Stream.builder();
+            vertex.forEachEdge((target, weight) -> edges.add(new Edge<>(vertex.getLabel(), target, weight)));
+            return edges.build();
+        });
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder("Graph with vertices:\n");
-        for (Vertex<L> vertex : vertices) {
+        for (Vertex<L> vertex : vertices.values()) {
             builder.append(vertex.toString()).append("\n");
         }
         return builder.toString();
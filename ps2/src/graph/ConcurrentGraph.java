@@ -0,0 +1,282 @@
+package graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe implementation of a weighted directed graph with generic
+ * vertex labels.
+ *
+ * <p>Each vertex keeps its outgoing and incoming edges in concurrent maps.
+ * Writers lock only the stripes of the vertices they touch, so updates to
+ * edges between unrelated vertices proceed in parallel, and readers never
+ * lock at all.
+ *
+ * <p>Consistency: every single-edge update (set, increment) and every vertex
+ * update (add, remove) is atomic with respect to the other updates. A reader
+ * sees each edge either entirely before or entirely after any update to it.
+ * The maps returned by sources() and targets() are snapshots: they hold, for
+ * each edge, its weight at some moment during the call, and include every
+ * update that completed before the call began. vertices() is a live,
+ * unmodifiable view with the same per-vertex guarantee.
+ */
+public class ConcurrentGraph<L> implements Graph<L> {
+    private final ConcurrentMap<L, Adjacency<L>> vertices = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Abstraction function:
+     *   Represents the graph whose vertices are the keys of vertices, with an
+     *   edge s -> t of weight vertices.get(s).out.get(t) for every such entry.
+     *
+     * Representation invariant:
+     *   - no key or weight is null, and every weight is positive.
+     *   - while no write is in progress, vertices.get(s).out.get(t) equals
+     *     vertices.get(t).in.get(s) for every edge s -> t, and both endpoints
+     *     of every edge are keys of vertices.
+     *   - stripes.length is a power of two.
+     *
+     * Safety from rep exposure:
+     *   - all fields are private and final; Adjacency objects are never returned.
+     *   - vertices() returns an unmodifiable view, sources() and targets() return copies.
+     *
+     * Thread safety argument:
+     *   - vertices and the maps of each Adjacency are thread-safe maps.
+     *   - an edge s -> t is only written while holding the stripes of both s and t,
+     *     and a vertex v is only added or removed while holding the stripe of v,
+     *     so no two writers ever interleave on the same edge or vertex.
+     *   - stripes are always acquired in increasing index order, so writers
+     *     cannot deadlock.
+     */
+    private void checkRep(L source, L target) {
+        Adjacency<L> from = vertices.get(source);
+        Adjacency<L> to = vertices.get(target);
+        assert from != null && to != null : "edge endpoints must be vertices";
+        assert Objects.equals(from.out.get(target), to.in.get(source)) : "incoming edges must mirror outgoing edges";
+    }
+
+    /**
+     * The edges leaving and entering one vertex.
+     */
+    private static final class Adjacency<L> {
+        final ConcurrentMap<L, Integer> out = new ConcurrentHashMap<>();
+        final ConcurrentMap<L, Integer> in = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Make an empty graph with a number of lock stripes suited to this machine.
+     */
+    public ConcurrentGraph() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Make an empty graph.
+     *
+     * @param concurrency expected number of concurrent writers, at least 1;
+     *                    the number of lock stripes is derived from it
+     */
+    public ConcurrentGraph(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        }
+        int count = Integer.highestOneBit(Math.min(concurrency, 1 << 16) * 2 - 1);
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private int stripe(L label) {
+        int h = label.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private void lock(int first, int second) {
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlock(int first, int second) {
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        int stripe = stripe(vertex);
+        lock(stripe, stripe);
+        try {
+            return vertices.putIfAbsent(vertex, new Adjacency<>()) == null;
+        } finally {
+            unlock(stripe, stripe);
+        }
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        int stripe = stripe(vertex);
+        lock(stripe, stripe);
+        try {
+            Adjacency<L> adjacency = vertices.remove(vertex);
+            if (adjacency == null) {
+                return false;
+            }
+            // Every edge touching vertex needs its stripe, which we hold.
+            for (L target : adjacency.out.keySet()) {
+                Adjacency<L> other = vertices.get(target);
+                if (other != null) {
+                    other.in.remove(vertex);
+                }
+            }
+            for (L source : adjacency.in.keySet()) {
+                Adjacency<L> other = vertices.get(source);
+                if (other != null) {
+                    other.out.remove(vertex);
+                }
+            }
+            return true;
+        } finally {
+            unlock(stripe, stripe);
+        }
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        int first = stripe(source);
+        int second = stripe(target);
+        lock(first, second);
+        try {
+            if (weight > 0) {
+                Adjacency<L> from = vertices.computeIfAbsent(source, k -> new Adjacency<>());
+                Adjacency<L> to = vertices.computeIfAbsent(target, k -> new Adjacency<>());
+                Integer previous = from.out.put(target, weight);
+                to.in.put(source, weight);
+                checkRep(source, target);
+                return previous == null ? 0 : previous;
+            }
+            Adjacency<L> from = vertices.get(source);
+            Adjacency<L> to = vertices.get(target);
+            Integer previous = from == null ? null : from.out.remove(target);
+            if (to != null) {
+                to.in.remove(source);
+            }
+            return previous == null ? 0 : previous;
+        } finally {
+            unlock(first, second);
+        }
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
+        int first = stripe(source);
+        int second = stripe(target);
+        lock(first, second);
+        try {
+            Adjacency<L> from = vertices.get(source);
+            if (from == null) {
+                if (delta <= 0) {
+                    return 0;
+                }
+                from = vertices.computeIfAbsent(source, k -> new Adjacency<>());
+            }
+            Integer weight = from.out.compute(target, (t, w) -> {
+                int updated = (w == null ? 0 : w) + delta;
+                return updated > 0 ? updated : null;
+            });
+            if (weight != null) {
+                vertices.computeIfAbsent(target, k -> new Adjacency<>()).in.put(source, weight);
+                checkRep(source, target);
+                return weight;
+            }
+            Adjacency<L> to = vertices.get(target);
+            if (to != null) {
+                to.in.remove(source);
+            }
+            return 0;
+        } finally {
+            unlock(first, second);
+        }
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return Collections.unmodifiableSet(vertices.keySet());
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        Adjacency<L> adjacency = vertices.get(target);
+        return adjacency == null ? Collections.emptyMap() : new HashMap<>(adjacency.in);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        Adjacency<L> adjacency = vertices.get(source);
+        return adjacency == null ? Collections.emptyMap() : new HashMap<>(adjacency.out);
+    }
+
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        Adjacency<L> adjacency = vertices.get(source);
+        if (adjacency != null) {
+            adjacency.out.forEach(action::accept);
+        }
+    }
+
+    @Override
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        Adjacency<L> adjacency = vertices.get(target);
+        if (adjacency != null) {
+            adjacency.in.forEach(action::accept);
+        }
+    }
+
+    @Override
+    public int weight(L source, L target) {
+        Adjacency<L> adjacency = vertices.get(source);
+        Integer weight = adjacency == null ? null : adjacency.out.get(target);
+        return weight == null ? 0 : weight;
+    }
+
+    @Override
+    public int outDegree(L source) {
+        Adjacency<L> adjacency = vertices.get(source);
+        return adjacency == null ? 0 : adjacency.out.size();
+    }
+
+    @Override
+    public int inDegree(L target) {
+        Adjacency<L> adjacency = vertices.get(target);
+        return adjacency == null ? 0 : adjacency.in.size();
+    }
+
+    /**
+     * @return the edges of this graph, grouped by source in no particular
+     *         order; like sources() and targets(), the stream holds each edge
+     *         with its weight at some moment while it is traversed, and may be
+     *         used while the graph changes
+     */
+    @Override
+    public Stream<Edge<L>> edges() {
+        return vertices.entrySet().stream().flatMap(vertex -> vertex.getValue().out.entrySet().stream()
+                .map(edge -> new Edge<>(vertex.getKey(), edge.getKey(), edge.getValue())));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Graph with vertices:\n");
+        for (Map.Entry<L, Adjacency<L>> vertex : vertices.entrySet()) {
+            builder.append(vertex.getKey()).append(" -> ").append(vertex.getValue().out).append("\n");
+        }
+        return builder.toString();
+    }
+}
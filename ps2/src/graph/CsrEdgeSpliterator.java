@@ -0,0 +1,145 @@
+package graph;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A spliterator over the edges of a graph in compressed sparse row form,
+ * such as FrozenGraph: source vertex s has the edges to targets.applyAsInt(i)
+ * of weight weights.applyAsInt(i) for offsets.applyAsInt(s) <= i <
+ * offsets.applyAsInt(s + 1).
+ *
+ * <p>It covers a range of edge indexes, and splits that range in half, so
+ * every split is exactly sized and balanced however the edges are spread over
+ * the vertices; finding the source of the first edge of a split takes a
+ * binary search over the offsets. Edges are listed by source, in row order.
+ * The graph must not change while the spliterator is in use.
+ */
+public final class CsrEdgeSpliterator<L> implements Spliterator<Edge<L>> {
+    private static final int MIN_SPLIT = 1 << 10;
+
+    private final IntUnaryOperator offsets;
+    private final IntUnaryOperator targets;
+    private final IntUnaryOperator weights;
+    private final IntFunction<? extends L> labels;
+    private final int vertexCount;
+    private int source;
+    private int next;
+    private final int end;
+
+    // Abstraction function:
+    //   Represents the edges with indexes next..end-1, of which the first is
+    //   in the row of vertex source
+    // Representation invariant:
+    //   0 <= next <= end <= offsets(vertexCount)
+    //   if next < end, source is the vertex whose row holds edge next, else
+    //   source <= vertexCount
+    // Safety from rep exposure:
+    //   all fields are private; the functions are shared deliberately, since
+    //   this is a view of the graph they read
+
+    /**
+     * Make a spliterator over every edge of a graph.
+     *
+     * @param vertexCount number of vertices
+     * @param offsets offset of the first edge of each row, for 0..vertexCount
+     * @param targets target vertex of each edge
+     * @param weights weight of each edge
+     * @param labels label of each vertex
+     */
+    public CsrEdgeSpliterator(int vertexCount, IntUnaryOperator offsets, IntUnaryOperator targets,
+            IntUnaryOperator weights, IntFunction<? extends L> labels) {
+        this(vertexCount, offsets, targets, weights, labels, 0, 0, offsets.applyAsInt(vertexCount));
+    }
+
+    private CsrEdgeSpliterator(int vertexCount, IntUnaryOperator offsets, IntUnaryOperator targets,
+            IntUnaryOperator weights, IntFunction<? extends L> labels, int source, int next, int end) {
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.labels = labels;
+        this.source = source;
+        this.next = next;
+        this.end = end;
+        skipEmptyRows();
+    }
+
+    /*
+     * Move source forward to the row holding edge next.
+     */
+    private void skipEmptyRows() {
+        while (source < vertexCount && offsets.applyAsInt(source + 1) <= next) {
+            source++;
+        }
+    }
+
+    /*
+     * Return the vertex whose row holds edge index, searching from source.
+     */
+    private int rowOf(int index) {
+        int low = source;
+        int high = vertexCount - 1;
+        // Find the last vertex whose row starts at or before index
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets.applyAsInt(middle) <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private Edge<L> edge(int index) {
+        return new Edge<>(labels.apply(source), labels.apply(targets.applyAsInt(index)), weights.applyAsInt(index));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Edge<L>> action) {
+        if (next >= end) {
+            return false;
+        }
+        skipEmptyRows();
+        action.accept(edge(next++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Edge<L>> action) {
+        while (next < end) {
+            int rowEnd = Math.min(offsets.applyAsInt(source + 1), end);
+            L label = labels.apply(source);
+            for (; next < rowEnd; next++) {
+                action.accept(new Edge<>(label, labels.apply(targets.applyAsInt(next)), weights.applyAsInt(next)));
+            }
+            skipEmptyRows();
+        }
+    }
+
+    @Override
+    public Spliterator<Edge<L>> trySplit() {
+        if (end - next < 2 * MIN_SPLIT) {
+            return null;
+        }
+        int middle = (next + end) >>> 1;
+        Spliterator<Edge<L>> prefix = new CsrEdgeSpliterator<>(vertexCount, offsets, targets, weights, labels,
+                source, next, middle);
+        source = rowOf(middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+}
@@ -2,8 +2,9 @@ package graph;
 
 /**
  * An immutable class representing a weighted directed edge between two vertices in a graph.
+ * Edge weights are always positive.
  */
-class Edge<L> {
+public class Edge<L> {
     private final L from;
     private final L to;
     private final int weight;
@@ -27,6 +28,19 @@ class Edge<L> {
 
     public int weight() { return weight; }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Edge)) return false;
+        Edge<?> that = (Edge<?>) o;
+        return from.equals(that.from) && to.equals(that.to) && weight == that.weight;
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * from.hashCode() + to.hashCode()) * 31 + weight;
+    }
+
     @Override
     public String toString() {
         return from + " -> " + to + " [weight=" + weight + "]";
@@ -0,0 +1,62 @@
+package graph;
+
+/**
+ * An immutable change to the weight of a weighted directed edge, for
+ * Graph.incrementAll. Unlike an Edge, the change may be zero or negative.
+ */
+public final class EdgeDelta<L> {
+    private final L from;
+    private final L to;
+    private final int delta;
+
+    // Abstraction function:
+    //   Represents adding delta to the weight of the edge from -> to
+    // Representation invariant:
+    //   from and to are not null
+    // Safety from rep exposure:
+    //   all fields are private and final; labels are returned as they were
+    //   given, and must be immutable like any vertex label
+
+    /**
+     * Make a weight change.
+     *
+     * @param from label of the source vertex
+     * @param to label of the target vertex
+     * @param delta amount to add to the weight of the edge; may be negative
+     */
+    public EdgeDelta(L from, L to, int delta) {
+        this.from = from;
+        this.to = to;
+        this.delta = delta;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert from != null : "from vertex must not be null";
+        assert to != null : "to vertex must not be null";
+    }
+
+    public L from() { return from; }
+
+    public L to() { return to; }
+
+    public int delta() { return delta; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EdgeDelta)) return false;
+        EdgeDelta<?> that = (EdgeDelta<?>) o;
+        return from.equals(that.from) && to.equals(that.to) && delta == that.delta;
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * from.hashCode() + to.hashCode()) * 31 + delta;
+    }
+
+    @Override
+    public String toString() {
+        return from + " -> " + to + " [delta=" + (delta > 0 ? "+" : "") + delta + "]";
+    }
+}
@@ -0,0 +1,364 @@
+package graph;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable weighted directed graph with generic vertex labels, stored in
+ * compressed sparse row form.
+ *
+ * <p>A FrozenGraph is made by freezing any other graph once it is no longer
+ * going to change. Each vertex is given a dense int id, and the outgoing and
+ * incoming edges of every vertex are stored as one contiguous slice of
+ * primitive int arrays, so the graph needs no object per edge and neighbor
+ * iteration walks memory in order. sources() and targets() return read-only
+ * views over those slices rather than fresh maps; within a view, neighbors
+ * are ordered by the order of vertices().
+ *
+ * <p>Every mutator throws UnsupportedOperationException.
+ */
+public final class FrozenGraph<L> implements Graph<L> {
+    private final Object[] labels;
+    private final Map<L, Integer> ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] outWeights;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inWeights;
+
+    /**
+     * Abstraction function:
+     *   Represents the graph whose vertices are labels[0..n-1], and which has an
+     *   edge labels[s] -> labels[outTargets[i]] of weight outWeights[i] for every
+     *   s and every outOffsets[s] <= i < outOffsets[s+1].
+     *
+     * Representation invariant:
+     *   - labels contains n unique, non-null labels, and ids.get(labels[i]) == i.
+     *   - outOffsets and inOffsets have length n+1, start at 0, are non-decreasing,
+     *     and end at the number of edges.
+     *   - within each row, target (resp. source) ids are strictly increasing.
+     *   - all weights are positive.
+     *   - the in-edge arrays hold exactly the transpose of the out-edge arrays.
+     *
+     * Safety from rep exposure:
+     *   - all fields are private and final, and no array is ever returned.
+     *   - vertices(), sources() and targets() return unmodifiable views.
+     */
+    private void checkRep() {
+        assert labels.length == ids.size() : "labels must be unique";
+        assert outOffsets[labels.length] == outTargets.length : "out offsets must cover all edges";
+        assert inOffsets[labels.length] == inSources.length : "in offsets must cover all edges";
+        assert outTargets.length == inSources.length : "in edges must mirror out edges";
+    }
+
+    private FrozenGraph(Object[] labels, Map<L, Integer> ids,
+            int[] outOffsets, int[] outTargets, int[] outWeights,
+            int[] inOffsets, int[] inSources, int[] inWeights) {
+        this.labels = labels;
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+        checkRep();
+    }
+
+    /**
+     * Make an immutable copy of a graph.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph graph to copy; it is only read
+     * @return a frozen graph with the same vertices and edges as graph
+     */
+    public static <L> FrozenGraph<L> freeze(Graph<L> graph) {
+        if (graph instanceof FrozenGraph) {
+            return (FrozenGraph<L>) graph;
+        }
+        Object[] labels = graph.vertices().toArray();
+        int n = labels.length;
+        Map<L, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (int id = 0; id < n; id++) {
+            @SuppressWarnings("unchecked")
+            L label = (L) labels[id];
+            ids.put(label, id);
+        }
+
+        // Out-edges, one row per source, each row sorted by target id.
+        int[] outOffsets = new int[n + 1];
+        int[][] rows = new int[n][];
+        for (int id = 0; id < n; id++) {
+            @SuppressWarnings("unchecked")
+            L label = (L) labels[id];
+            Map<L, Integer> targets = graph.targets(label);
+            long[] row = new long[targets.size()];
+            int k = 0;
+            for (Map.Entry<L, Integer> edge : targets.entrySet()) {
+                row[k++] = ((long) ids.get(edge.getKey()) << 32) | edge.getValue();
+            }
+            Arrays.sort(row);
+            rows[id] = new int[row.length * 2];
+            for (int j = 0; j < row.length; j++) {
+                rows[id][2 * j] = (int) (row[j] >>> 32);
+                rows[id][2 * j + 1] = (int) row[j];
+            }
+            outOffsets[id + 1] = outOffsets[id] + row.length;
+        }
+        int edgeCount = outOffsets[n];
+        int[] outTargets = new int[edgeCount];
+        int[] outWeights = new int[edgeCount];
+        for (int id = 0; id < n; id++) {
+            int[] row = rows[id];
+            rows[id] = null;
+            for (int j = 0, i = outOffsets[id]; j < row.length; j += 2, i++) {
+                outTargets[i] = row[j];
+                outWeights[i] = row[j + 1];
+            }
+        }
+
+        // In-edges are the transpose; scanning sources in id order keeps each row sorted.
+        int[] inOffsets = new int[n + 1];
+        for (int target : outTargets) {
+            inOffsets[target + 1]++;
+        }
+        for (int id = 0; id < n; id++) {
+            inOffsets[id + 1] += inOffsets[id];
+        }
+        int[] inSources = new int[edgeCount];
+        int[] inWeights = new int[edgeCount];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int source = 0; source < n; source++) {
+            for (int i = outOffsets[source]; i < outOffsets[source + 1]; i++) {
+                int slot = next[outTargets[i]]++;
+                inSources[slot] = source;
+                inWeights[slot] = outWeights[i];
+            }
+        }
+        return new FrozenGraph<>(labels, ids, outOffsets, outTargets, outWeights,
+                inOffsets, inSources, inWeights);
+    }
+
+    @SuppressWarnings("unchecked")
+    private L label(int id) {
+        return (L) labels[id];
+    }
+
+    private int id(Object label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        throw new UnsupportedOperationException("frozen graph cannot be modified");
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("frozen graph cannot be modified");
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("frozen graph cannot be modified");
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return new AbstractSet<L>() {
+            @Override
+            public boolean contains(Object o) {
+                return ids.containsKey(o);
+            }
+
+            @Override
+            public Iterator<L> iterator() {
+                return new Iterator<L>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < labels.length;
+                    }
+
+                    @Override
+                    public L next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return label(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return labels.length;
+            }
+        };
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        int id = id(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(inOffsets[id], inOffsets[id + 1], inSources, inWeights);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        int id = id(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(outOffsets[id], outOffsets[id + 1], outTargets, outWeights);
+    }
+
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        int id = id(source);
+        if (id >= 0) {
+            for (int i = outOffsets[id]; i < outOffsets[id + 1]; i++) {
+                action.accept(label(outTargets[i]), outWeights[i]);
+            }
+        }
+    }
+
+    @Override
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        int id = id(target);
+        if (id >= 0) {
+            for (int i = inOffsets[id]; i < inOffsets[id + 1]; i++) {
+                action.accept(label(inSources[i]), inWeights[i]);
+            }
+        }
+    }
+
+    @Override
+    public int weight(L source, L target) {
+        int from = id(source);
+        int to = id(target);
+        if (from < 0 || to < 0) {
+            return 0;
+        }
+        int i = Arrays.binarySearch(outTargets, outOffsets[from], outOffsets[from + 1], to);
+        return i < 0 ? 0 : outWeights[i];
+    }
+
+    @Override
+    public int outDegree(L source) {
+        int id = id(source);
+        return id < 0 ? 0 : outOffsets[id + 1] - outOffsets[id];
+    }
+
+    @Override
+    public int inDegree(L target) {
+        int id = id(target);
+        return id < 0 ? 0 : inOffsets[id + 1] - inOffsets[id];
+    }
+
+    /**
+     * @return the edges of this graph, by source in the order of vertices(),
+     *         through a CsrEdgeSpliterator that splits evenly by edge
+     */
+    @Override
+    public Stream<Edge<L>> edges() {
+        return StreamSupport.stream(new CsrEdgeSpliterator<L>(labels.length, id -> outOffsets[id],
+                i -> outTargets[i], i -> outWeights[i], this::label), false);
+    }
+
+    /**
+     * A read-only map view of the neighbors in one CSR row.
+     */
+    private final class Row extends AbstractMap<L, Integer> {
+        private final int from;
+        private final int to;
+        private final int[] neighbors;
+        private final int[] weights;
+
+        Row(int from, int to, int[] neighbors, int[] weights) {
+            this.from = from;
+            this.to = to;
+            this.neighbors = neighbors;
+            this.weights = weights;
+        }
+
+        private int indexOf(Object key) {
+            int id = id(key);
+            if (id < 0) {
+                return -1;
+            }
+            int i = Arrays.binarySearch(neighbors, from, to, id);
+            return i < 0 ? -1 : i;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : weights[i];
+        }
+
+        @Override
+        public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int next = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < to;
+                        }
+
+                        @Override
+                        public Map.Entry<L, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(label(neighbors[i]), weights[i]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Graph with vertices:\n");
+        for (Object label : labels) {
+            builder.append(label).append("\n");
+        }
+        builder.append("And edges:\n");
+        for (int source = 0; source < labels.length; source++) {
+            for (int i = outOffsets[source]; i < outOffsets[source + 1]; i++) {
+                builder.append(labels[source]).append(" -> ").append(labels[outTargets[i]])
+                        .append(" [weight=").append(outWeights[i]).append("]\n");
+            }
+        }
+        return builder.toString();
+    }
+}
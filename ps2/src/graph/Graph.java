@@ -2,6 +2,8 @@ package graph;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
 
 public interface Graph<L> {
 
@@ -17,6 +19,107 @@ public interface Graph<L> {
 
     Map<L, Integer> targets(L source);
 
+    /**
+     * Visit the edges leaving a vertex without copying them, in the same order
+     * as targets(source) would list them. The graph must not be modified
+     * while action runs.
+     *
+     * @param source a label
+     * @param action called with the target and weight of each edge from source
+     */
+    default void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        for (Map.Entry<L, Integer> edge : targets(source).entrySet()) {
+            action.accept(edge.getKey(), edge.getValue());
+        }
+    }
+
+    /**
+     * Visit the edges entering a vertex without copying them, in the same order
+     * as sources(target) would list them. The graph must not be modified
+     * while action runs.
+     *
+     * @param target a label
+     * @param action called with the source and weight of each edge to target
+     */
+    default void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        for (Map.Entry<L, Integer> edge : sources(target).entrySet()) {
+            action.accept(edge.getKey(), edge.getValue());
+        }
+    }
+
+    /**
+     * Get the weight of an edge.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @return the weight of the edge from source to target, or 0 if there is none
+     */
+    default int weight(L source, L target) {
+        Integer weight = targets(source).get(target);
+        return weight == null ? 0 : weight;
+    }
+
+    /**
+     * @param source a label
+     * @return the number of edges leaving source, or 0 if it is not a vertex
+     */
+    default int outDegree(L source) {
+        return targets(source).size();
+    }
+
+    /**
+     * @param target a label
+     * @return the number of edges entering target, or 0 if it is not a vertex
+     */
+    default int inDegree(L target) {
+        return sources(target).size();
+    }
+
+    /**
+     * Add to the weight of an edge in a single update. If the resulting weight
+     * is positive, the edge is set to it and source and target are added as
+     * vertices if they are missing; otherwise the edge is removed if it exists.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add to the weight of the edge from source to
+     *              target; may be negative
+     * @return the weight of the edge after the update, or 0 if there is no edge
+     */
+    default int increment(L source, L target, int delta) {
+        int weight = weight(source, target) + delta;
+        set(source, target, Math.max(weight, 0));
+        return Math.max(weight, 0);
+    }
+
+    /**
+     * Add to the weights of a batch of edges, as if by calling
+     * increment(delta.from(), delta.to(), delta.delta()) for each delta in
+     * order.
+     *
+     * @param deltas changes to the weights of edges of this graph; may be
+     *               negative
+     */
+    default void incrementAll(Iterable<? extends EdgeDelta<L>> deltas) {
+        for (EdgeDelta<L> delta : deltas) {
+            increment(delta.from(), delta.to(), delta.delta());
+        }
+    }
+
+    /**
+     * Stream every edge of the graph in one pass, in an order that depends on
+     * the implementation. The stream may be made parallel; implementations
+     * that can split their edges evenly report SIZED and SUBSIZED. The graph
+     * must not be modified while the stream is in use, unless the
+     * implementation says otherwise.
+     *
+     * @return the edges of this graph, one Edge(source, target, weight) each
+     */
+    default Stream<Edge<L>> edges() {
+        return vertices().stream().flatMap(source -> targets(source).entrySet().stream()
+                .map(edge -> new Edge<>(source, edge.getKey(), edge.getValue())));
+    }
+
     static <L> Graph<L> empty() {
         return new ConcreteEdgesGraph<>();
     }
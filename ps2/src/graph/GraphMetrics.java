@@ -0,0 +1,156 @@
+package graph;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Call counts and latency histograms of the operations of one or more
+ * graphs, recorded by InstrumentedGraph. Safe for use by concurrent threads.
+ *
+ * <p>A GraphMetrics is an MXBean, so it can be registered with an MBeanServer
+ * to be read by JMX clients such as JConsole.
+ */
+public final class GraphMetrics implements GraphMetricsMXBean {
+
+    /**
+     * The operations of Graph.
+     */
+    public enum Operation {
+        ADD, REMOVE, SET, VERTICES, SOURCES, TARGETS,
+        FOR_EACH_TARGET, FOR_EACH_SOURCE, WEIGHT, OUT_DEGREE, IN_DEGREE, INCREMENT, EDGES
+    }
+
+    // Rough sizes in bytes, assuming compressed references, of a vertex (its
+    // label String and the maps that hold its edges) and of an edge (an entry
+    // in the maps of both its endpoints)
+    private static final long VERTEX_BYTES = 160;
+    private static final long LABEL_CHAR_BYTES = 1;
+    private static final long EDGE_BYTES = 40;
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+
+    // Abstraction function:
+    //   Represents, for each operation op, the latencies of the calls of op
+    //   recorded so far, latencies.get(op)
+    // Representation invariant:
+    //   latencies has a histogram for every operation
+    // Safety from rep exposure:
+    //   all fields are private and final; histograms are never returned, only
+    //   numbers and new maps
+    // Thread safety argument:
+    //   latencies is never modified after construction, and histograms are
+    //   thread-safe
+
+    /**
+     * Make metrics with no calls recorded.
+     */
+    public GraphMetrics() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Record a call of an operation.
+     *
+     * @param operation the operation
+     * @param nanos how long the call took, in nanoseconds
+     */
+    public void record(Operation operation, long nanos) {
+        latencies.get(operation).record(nanos);
+    }
+
+    /**
+     * @param operation an operation
+     * @return number of calls of operation recorded
+     */
+    public long calls(Operation operation) {
+        return latencies.get(operation).count();
+    }
+
+    /**
+     * @param operation an operation
+     * @param fraction fraction of the calls, between 0 and 1
+     * @return estimated latency in nanoseconds that that fraction of the calls
+     *         of operation took at most, as LatencyHistogram.percentile()
+     */
+    public long percentile(Operation operation, double fraction) {
+        return latencies.get(operation).percentile(fraction);
+    }
+
+    private <T> Map<String, T> each(Function<LatencyHistogram, T> statistic) {
+        Map<String, T> map = new LinkedHashMap<>();
+        latencies.forEach((operation, latency) -> map.put(operation.name(), statistic.apply(latency)));
+        return map;
+    }
+
+    private Map<String, Long> eachMicros(ToLongFunction<LatencyHistogram> statistic) {
+        return each(latency -> TimeUnit.NANOSECONDS.toMicros(statistic.applyAsLong(latency)));
+    }
+
+    @Override
+    public Map<String, Long> getCalls() {
+        return each(LatencyHistogram::count);
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() {
+        return each(latency -> latency.mean() / 1e3);
+    }
+
+    @Override
+    public Map<String, Long> getP50Micros() {
+        return eachMicros(latency -> latency.percentile(0.5));
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        return eachMicros(latency -> latency.percentile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getMaxMicros() {
+        return eachMicros(LatencyHistogram::max);
+    }
+
+    /**
+     * Count the edges of a graph. Takes time in proportion to the number of
+     * vertices.
+     *
+     * @param <L> type of vertex labels
+     * @param graph a graph
+     * @return number of edges of graph
+     */
+    public static <L> long edgeCount(Graph<L> graph) {
+        long edges = 0;
+        for (L vertex : graph.vertices()) {
+            edges += graph.outDegree(vertex);
+        }
+        return edges;
+    }
+
+    /**
+     * Estimate the heap that a graph would take if kept in hash maps, as
+     * ConcreteVerticesGraph and VersionedGraph keep it. Compact read-only
+     * graphs take less, and memory-mapped ones almost none. Takes time in
+     * proportion to the number of vertices.
+     *
+     * @param <L> type of vertex labels
+     * @param graph a graph
+     * @return estimated size of graph in bytes
+     */
+    public static <L> long estimatedHeapBytes(Graph<L> graph) {
+        long bytes = 0;
+        for (L vertex : graph.vertices()) {
+            bytes += VERTEX_BYTES + EDGE_BYTES * graph.outDegree(vertex);
+            if (vertex instanceof CharSequence) {
+                bytes += LABEL_CHAR_BYTES * ((CharSequence) vertex).length();
+            }
+        }
+        return bytes;
+    }
+}
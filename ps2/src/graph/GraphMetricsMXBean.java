@@ -0,0 +1,36 @@
+package graph;
+
+import java.util.Map;
+
+/**
+ * Management interface of GraphMetrics, for JMX clients. Each attribute maps
+ * the name of every Graph operation to a statistic of its calls; latencies
+ * are in microseconds.
+ */
+public interface GraphMetricsMXBean {
+
+    /**
+     * @return number of calls of each operation
+     */
+    Map<String, Long> getCalls();
+
+    /**
+     * @return mean latency of each operation
+     */
+    Map<String, Double> getMeanMicros();
+
+    /**
+     * @return median latency of each operation, to within a factor of two
+     */
+    Map<String, Long> getP50Micros();
+
+    /**
+     * @return 99th percentile latency of each operation, to within a factor of two
+     */
+    Map<String, Long> getP99Micros();
+
+    /**
+     * @return largest latency of each operation
+     */
+    Map<String, Long> getMaxMicros();
+}
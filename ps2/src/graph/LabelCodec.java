@@ -0,0 +1,47 @@
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A conversion between vertex labels and bytes, for graphs that keep their
+ * labels off the Java heap, such as OffHeapGraph.
+ *
+ * <p>Two labels must encode to equal bytes if and only if they are equal, and
+ * decoding the bytes of a label must give back an equal label.
+ */
+public interface LabelCodec<L> {
+
+    /**
+     * @param label a label, not null
+     * @return its bytes; the caller may keep or modify the array
+     */
+    byte[] encode(L label);
+
+    /**
+     * @param bytes bytes of a label, from the buffer's position to its limit;
+     *              the buffer must not be kept after this call returns
+     * @return the label they encode
+     */
+    L decode(ByteBuffer bytes);
+
+    /**
+     * @return a codec for strings as their UTF-8 bytes; strings holding
+     *         unpaired surrogates do not survive the round trip
+     */
+    static LabelCodec<String> utf8() {
+        return new LabelCodec<String>() {
+            @Override
+            public byte[] encode(String label) {
+                return label.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(ByteBuffer bytes) {
+                byte[] copy = new byte[bytes.remaining()];
+                bytes.get(copy);
+                return new String(copy, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package graph;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations in power-of-two buckets, so that recording one is cheap
+ * and contention-free and any percentile can be estimated to within a factor
+ * of two. Safe for use by concurrent threads.
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = Long.SIZE;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    // Abstraction function:
+    //   Represents a multiset of durations in nanoseconds, of which
+    //   buckets[b] counts those d with 2^(b-1) <= d < 2^b (and buckets[0]
+    //   those <= 0), total is the sum and max the largest.
+    // Representation invariant:
+    //   buckets has BUCKETS non-null counters
+    // Safety from rep exposure:
+    //   all fields are private and final, and only numbers are returned
+    // Thread safety argument:
+    //   all fields are thread-safe counters; a reader may see a recording
+    //   counted in some of them but not yet in others
+
+    /**
+     * Make an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets[b] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos a duration in nanoseconds
+     */
+    public void record(long nanos) {
+        buckets[BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0))].increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return mean of the durations recorded, or 0 if there are none
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : total.sum() / (double) count;
+    }
+
+    /**
+     * @return largest duration recorded, or 0 if there are none
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Estimate a percentile.
+     *
+     * @param fraction fraction of the durations, between 0 and 1
+     * @return an upper bound, at most twice too high, on the smallest duration
+     *         that is at least as long as that fraction of the durations
+     *         recorded; 0 if there are none
+     */
+    public long percentile(double fraction) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = buckets[b].sum();
+            count += counts[b];
+        }
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank && seen > 0) {
+                return Math.min(b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1, max());
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,280 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A mutable map from non-null keys to positive ints, iterated in insertion
+ * order, that needs no object per entry.
+ *
+ * <p>Entries are kept in two parallel arrays, keys and values, in the order
+ * they were inserted, and found through an open-addressing table of int
+ * positions in those arrays. A removed entry leaves a hole that is squeezed
+ * out the next time the arrays fill up. Zero stands for "no entry", which is
+ * why values must be positive.
+ */
+final class ObjectIntMap<K> {
+    private static final Object[] NO_KEYS = {};
+    private static final int[] NO_INTS = {};
+    private static final int MIN_CAPACITY = 4;
+
+    private Object[] keys = NO_KEYS;
+    private int[] values = NO_INTS;
+    private int[] index = NO_INTS;
+    private int end = 0;
+    private int size = 0;
+
+    // Abstraction function:
+    //   Represents the map from keys[i] to values[i] for every 0 <= i < end
+    //   with keys[i] != null, iterated in increasing order of i.
+    // Representation invariant:
+    //   keys and values have the same length, which is 0 or a power of two
+    //   at least MIN_CAPACITY; index is twice as long
+    //   0 <= size <= end <= keys.length, and size is the number of non-null
+    //   keys[0..end-1], which are unique
+    //   values[i] > 0 wherever keys[i] != null, and 0 elsewhere
+    //   each slot of index is 0 or i+1 for some live entry i; every live entry
+    //   has exactly one slot, reachable by linear probing from
+    //   spread(keys[i].hashCode()) without crossing a 0 slot
+    // Safety from rep exposure:
+    //   all fields are private, no array is ever returned, and toMap() copies
+
+    /**
+     * Make an empty map.
+     */
+    ObjectIntMap() {
+    }
+
+    /**
+     * Make a map with the same entries as another, in the same order.
+     *
+     * @param map map to copy
+     */
+    ObjectIntMap(ObjectIntMap<K> map) {
+        if (map.size > 0) {
+            this.keys = map.keys.clone();
+            this.values = map.values.clone();
+            this.index = map.index.clone();
+            this.end = map.end;
+            this.size = map.size;
+        }
+    }
+
+    private void checkRep() {
+        assert keys.length == values.length && index.length == 2 * keys.length : "arrays must match";
+        assert 0 <= size && size <= end && end <= keys.length : "size must fit the arrays";
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /*
+     * @return the slot of index that holds key's entry, or -1 if there is none
+     */
+    private int slotOf(Object key) {
+        if (size == 0) {
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = spread(key.hashCode()) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[index[slot] - 1].equals(key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key a key
+     * @return the value of key, or 0 if it has none
+     */
+    public int get(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? 0 : values[index[slot] - 1];
+    }
+
+    /**
+     * Set the value of a key, appending the key if it is new.
+     *
+     * @param key a non-null key
+     * @param value positive value
+     * @return the previous value of key, or 0 if it had none
+     */
+    public int put(K key, int value) {
+        assert value > 0 : "values must be positive";
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            int entry = index[slot] - 1;
+            int previous = values[entry];
+            values[entry] = value;
+            return previous;
+        }
+        append(key, value);
+        return 0;
+    }
+
+    /**
+     * Add to the value of a key. The entry is appended if the key is new and
+     * the sum is positive, and removed if the sum is not positive.
+     *
+     * @param key a non-null key
+     * @param delta amount to add to the value of key, taken as 0 if it has none
+     * @return the new value of key, or 0 if it now has none
+     */
+    public int add(K key, int delta) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            if (delta <= 0) {
+                return 0;
+            }
+            append(key, delta);
+            return delta;
+        }
+        int entry = index[slot] - 1;
+        int value = values[entry] + delta;
+        if (value <= 0) {
+            delete(slot);
+            return 0;
+        }
+        values[entry] = value;
+        return value;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key a key
+     * @return the value key had, or 0 if it had none
+     */
+    public int remove(Object key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return 0;
+        }
+        int previous = values[index[slot] - 1];
+        delete(slot);
+        return previous;
+    }
+
+    /**
+     * Call action on every entry, in insertion order. action must not modify
+     * this map.
+     *
+     * @param action called with each key and its value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        for (int i = 0; i < end; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return a new map with the same entries, in the same order
+     */
+    public Map<K, Integer> toMap() {
+        Map<K, Integer> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+        forEach(map::put);
+        return map;
+    }
+
+    private void append(K key, int value) {
+        if (end == keys.length) {
+            // Squeeze out holes if that frees at least half the arrays, else grow
+            rebuild(2 * size <= keys.length && size > 0 ? keys.length
+                    : Math.max(MIN_CAPACITY, 2 * keys.length));
+        }
+        keys[end] = key;
+        values[end] = value;
+        int mask = index.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = ++end;
+        size++;
+        checkRep();
+    }
+
+    /*
+     * Copy the live entries to the front of new arrays of the given capacity,
+     * and index them again.
+     */
+    private void rebuild(int capacity) {
+        Object[] newKeys = new Object[capacity];
+        int[] newValues = new int[capacity];
+        int[] newIndex = new int[2 * capacity];
+        int mask = newIndex.length - 1;
+        int live = 0;
+        for (int i = 0; i < end; i++) {
+            if (keys[i] != null) {
+                newKeys[live] = keys[i];
+                newValues[live] = values[i];
+                int slot = spread(keys[i].hashCode()) & mask;
+                while (newIndex[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newIndex[slot] = ++live;
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+        index = newIndex;
+        end = live;
+    }
+
+    /*
+     * Remove the entry in slot, shifting later entries of its probe run back
+     * so that no tombstone is needed.
+     */
+    private void delete(int slot) {
+        int entry = index[slot] - 1;
+        keys[entry] = null;
+        values[entry] = 0;
+        size--;
+        if (size == 0) {
+            keys = NO_KEYS;
+            values = NO_INTS;
+            index = NO_INTS;
+            end = 0;
+            return;
+        }
+        int mask = index.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int home = spread(keys[index[i] - 1].hashCode()) & mask;
+            // Move the entry at i into the hole unless its home lies after the hole
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                index[hole] = index[i];
+                hole = i;
+            }
+        }
+        index[hole] = 0;
+        checkRep();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+}
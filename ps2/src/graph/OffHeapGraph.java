@@ -0,0 +1,739 @@
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A mutable weighted directed graph that keeps its vertex dictionary,
+ * adjacency lists and weights outside the Java heap, in direct buffers or in
+ * a memory-mapped file, growing one chunk at a time.
+ *
+ * <p>Labels are stored as the bytes of a LabelCodec and decoded only when a
+ * caller asks for them, so the heap holds little more than the references to
+ * the chunks, however many vertices and edges the graph has: building or
+ * updating a large graph allocates almost nothing the garbage collector has
+ * to trace or copy. Lookups hash label bytes into an open-addressing table,
+ * and each vertex keeps linked lists of its edges in insertion order, so every
+ * operation costs time proportional to the degree of the vertices it touches.
+ *
+ * <p>The bytes of a removed vertex's label are not reclaimed, so a graph whose
+ * vertices are removed and added again keeps growing. A graph backed by a file
+ * uses the file as scratch space: it is truncated when the graph is made, and
+ * cannot be reopened as a graph. Labels must encode to at most one chunk.
+ *
+ * <p>Not safe for use by concurrent threads; share it through ConcurrentGraph,
+ * or freeze it, if needed.
+ */
+public final class OffHeapGraph<L> implements Graph<L>, Closeable {
+    /** Default size of the chunks memory is allocated in, in bytes. */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int NIL = -1;
+    private static final int MIN_SLOTS = 16;
+
+    // Fields of a vertex record
+    private static final int V_HASH = 0;
+    private static final int V_LABEL_HIGH = 1;
+    private static final int V_LABEL_LOW = 2;
+    private static final int V_LABEL_LENGTH = 3;
+    private static final int V_OUT_HEAD = 4;
+    private static final int V_OUT_TAIL = 5;
+    private static final int V_IN_HEAD = 6;
+    private static final int V_IN_TAIL = 7;
+    private static final int V_OUT_DEGREE = 8;
+    private static final int V_IN_DEGREE = 9;
+    private static final int VERTEX_INTS = 10;
+    private static final int MAX_VERTICES = Integer.MAX_VALUE / VERTEX_INTS;
+
+    // Fields of an edge record
+    private static final int E_SOURCE = 0;
+    private static final int E_TARGET = 1;
+    private static final int E_WEIGHT = 2;
+    private static final int E_NEXT_OUT = 3;
+    private static final int E_PREV_OUT = 4;
+    private static final int E_NEXT_IN = 5;
+    private static final int E_PREV_IN = 6;
+    private static final int EDGE_INTS = 7;
+    private static final int MAX_EDGES = Integer.MAX_VALUE / EDGE_INTS;
+
+    private final LabelCodec<L> codec;
+    private final OffHeapMemory memory;
+    private final OffHeapMemory.Bytes labels;
+    private final OffHeapMemory.Ints vertexRecords;
+    private final OffHeapMemory.Ints edgeRecords;
+    private final Table vertexTable;
+    private final Table edgeTable;
+    private int vertexEnd = 0;
+    private int vertexCount = 0;
+    private int freeVertex = NIL;
+    private int edgeEnd = 0;
+    private int edgeCount = 0;
+    private int freeEdge = NIL;
+
+    // Abstraction function:
+    //   Represents the graph whose vertices are the labels decoded from the
+    //   live vertex records v < vertexEnd, those whose V_LABEL_LENGTH is not
+    //   negative, and whose edges are the live edge records e < edgeEnd, those
+    //   whose E_WEIGHT is positive: an edge from the vertex of record
+    //   E_SOURCE to that of E_TARGET with weight E_WEIGHT.
+    //   A vertex's label is the V_LABEL_LENGTH bytes at address
+    //   V_LABEL_HIGH << 32 | V_LABEL_LOW in labels. Its edges out are the list
+    //   from V_OUT_HEAD along E_NEXT_OUT, and its edges in the list from
+    //   V_IN_HEAD along E_NEXT_IN, both in insertion order.
+    // Representation invariant:
+    //   vertexCount and edgeCount are the numbers of live records
+    //   no two live vertices have equal label bytes; V_HASH is the labelHash()
+    //     of a live vertex's label bytes
+    //   no two live edges have the same source and target, which are live
+    //     vertices
+    //   the out and in lists are consistent doubly linked lists ending at
+    //     V_OUT_TAIL and V_IN_TAIL, holding exactly the live edges from and to
+    //     the vertex, and V_OUT_DEGREE and V_IN_DEGREE are their lengths
+    //   the free vertex records form a list from freeVertex along V_OUT_HEAD,
+    //     and the free edge records a list from freeEdge along E_NEXT_OUT
+    //   vertexTable holds exactly the live vertices, and edgeTable exactly the
+    //     live edges
+    // Safety from rep exposure:
+    //   all fields are private; labels are decoded into new objects, vertices()
+    //   returns an unmodifiable view, and sources() and targets() return new maps
+    // Thread safety argument:
+    //   none; this class is not thread-safe
+
+    private void checkRep() {
+        assert vertexCount >= 0 && vertexCount <= vertexEnd : "vertex count out of range";
+        assert edgeCount >= 0 && edgeCount <= edgeEnd : "edge count out of range";
+        assert vertexTable.size == vertexCount && edgeTable.size == edgeCount : "tables must hold every record";
+    }
+
+    private OffHeapGraph(LabelCodec<L> codec, OffHeapMemory memory) {
+        if (codec == null) {
+            throw new NullPointerException("codec is required");
+        }
+        this.codec = codec;
+        this.memory = memory;
+        this.labels = new OffHeapMemory.Bytes(memory);
+        this.vertexRecords = new OffHeapMemory.Ints(memory);
+        this.edgeRecords = new OffHeapMemory.Ints(memory);
+        this.vertexTable = new Table() {
+            @Override
+            int hash(int vertex) {
+                return vertexField(vertex, V_HASH);
+            }
+
+            @Override
+            boolean holds(int vertex) {
+                return live(vertex);
+            }
+        };
+        this.edgeTable = new Table() {
+            @Override
+            int hash(int edge) {
+                return edgeHash(edgeField(edge, E_SOURCE), edgeField(edge, E_TARGET));
+            }
+
+            @Override
+            boolean holds(int edge) {
+                return edgeField(edge, E_WEIGHT) > 0;
+            }
+        };
+        checkRep();
+    }
+
+    /**
+     * Make an empty graph in direct memory, allocated in chunks of
+     * DEFAULT_CHUNK_SIZE bytes.
+     *
+     * @param codec conversion of labels to and from bytes
+     * @return a new empty graph
+     */
+    public static <L> OffHeapGraph<L> direct(LabelCodec<L> codec) {
+        return direct(codec, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Make an empty graph in direct memory.
+     *
+     * @param codec conversion of labels to and from bytes
+     * @param chunkSize size of the chunks memory is allocated in, in bytes; a
+     *                  power of two from 4 KiB to 1 GiB
+     * @return a new empty graph
+     */
+    public static <L> OffHeapGraph<L> direct(LabelCodec<L> codec, int chunkSize) {
+        return new OffHeapGraph<>(codec, OffHeapMemory.direct(chunkSize));
+    }
+
+    /**
+     * Make an empty graph in a memory-mapped file, allocated in chunks of
+     * DEFAULT_CHUNK_SIZE bytes.
+     *
+     * @param file file to keep the graph in; created, or truncated if it exists
+     * @param codec conversion of labels to and from bytes
+     * @return a new empty graph
+     * @throws IOException if the file cannot be opened
+     */
+    public static <L> OffHeapGraph<L> mapped(Path file, LabelCodec<L> codec) throws IOException {
+        return mapped(file, codec, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Make an empty graph in a memory-mapped file. The file grows by one chunk
+     * at a time; failing to grow it throws UncheckedIOException from the
+     * operation that needed the space.
+     *
+     * @param file file to keep the graph in; created, or truncated if it exists
+     * @param codec conversion of labels to and from bytes
+     * @param chunkSize size of the chunks memory is allocated in, in bytes; a
+     *                  power of two from 4 KiB to 1 GiB
+     * @return a new empty graph
+     * @throws IOException if the file cannot be opened
+     */
+    public static <L> OffHeapGraph<L> mapped(Path file, LabelCodec<L> codec, int chunkSize) throws IOException {
+        OffHeapMemory memory = OffHeapMemory.mapped(file, chunkSize);
+        try {
+            return new OffHeapGraph<>(codec, memory);
+        } catch (RuntimeException e) {
+            memory.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of bytes of memory outside the heap this graph has taken
+     */
+    public long offHeapBytes() {
+        return memory.allocated();
+    }
+
+    /**
+     * @return number of edges in this graph
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Release the file backing this graph, if any. The graph must not be used
+     * afterwards.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        memory.close();
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int labelHash(byte[] bytes) {
+        return mix(Arrays.hashCode(bytes));
+    }
+
+    private static int edgeHash(int source, int target) {
+        long key = ((long) source << 32 | (target & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (int) (key >>> 32);
+    }
+
+    private int vertexField(int vertex, int field) {
+        return vertexRecords.get(vertex * VERTEX_INTS + field);
+    }
+
+    private void setVertexField(int vertex, int field, int value) {
+        vertexRecords.set(vertex * VERTEX_INTS + field, value);
+    }
+
+    private int edgeField(int edge, int field) {
+        return edgeRecords.get(edge * EDGE_INTS + field);
+    }
+
+    private void setEdgeField(int edge, int field, int value) {
+        edgeRecords.set(edge * EDGE_INTS + field, value);
+    }
+
+    private long labelAddress(int vertex) {
+        return (long) vertexField(vertex, V_LABEL_HIGH) << 32 | (vertexField(vertex, V_LABEL_LOW) & 0xFFFFFFFFL);
+    }
+
+    private L label(int vertex) {
+        return codec.decode(labels.view(labelAddress(vertex), vertexField(vertex, V_LABEL_LENGTH)));
+    }
+
+    private boolean live(int vertex) {
+        return vertexField(vertex, V_LABEL_LENGTH) >= 0;
+    }
+
+    /*
+     * Return the record of the vertex with the given label bytes and their
+     * labelHash(), or NIL if there is none.
+     */
+    private int find(byte[] bytes, int hash) {
+        for (int i = hash & vertexTable.mask; ; i = (i + 1) & vertexTable.mask) {
+            int slot = vertexTable.slots.get(i);
+            if (slot == 0) {
+                return NIL;
+            }
+            int vertex = slot - 1;
+            if (vertexField(vertex, V_HASH) == hash && vertexField(vertex, V_LABEL_LENGTH) == bytes.length
+                    && labels.equals(labelAddress(vertex), bytes)) {
+                return vertex;
+            }
+        }
+    }
+
+    private int find(L label) {
+        byte[] bytes = codec.encode(label);
+        return find(bytes, labelHash(bytes));
+    }
+
+    /*
+     * Return the record of the vertex with the given label bytes, adding one
+     * if there is none.
+     */
+    private int findOrAdd(byte[] bytes) {
+        int hash = labelHash(bytes);
+        int vertex = find(bytes, hash);
+        return vertex == NIL ? addVertex(bytes, hash) : vertex;
+    }
+
+    private int addVertex(byte[] bytes, int hash) {
+        long address = labels.append(bytes);
+        int vertex;
+        if (freeVertex != NIL) {
+            vertex = freeVertex;
+            freeVertex = vertexField(vertex, V_OUT_HEAD);
+        } else {
+            if (vertexEnd == MAX_VERTICES) {
+                throw new IllegalStateException("too many vertices");
+            }
+            vertex = vertexEnd++;
+            vertexRecords.ensure((long) vertexEnd * VERTEX_INTS);
+        }
+        setVertexField(vertex, V_HASH, hash);
+        setVertexField(vertex, V_LABEL_HIGH, (int) (address >>> 32));
+        setVertexField(vertex, V_LABEL_LOW, (int) address);
+        setVertexField(vertex, V_LABEL_LENGTH, bytes.length);
+        setVertexField(vertex, V_OUT_HEAD, NIL);
+        setVertexField(vertex, V_OUT_TAIL, NIL);
+        setVertexField(vertex, V_IN_HEAD, NIL);
+        setVertexField(vertex, V_IN_TAIL, NIL);
+        setVertexField(vertex, V_OUT_DEGREE, 0);
+        setVertexField(vertex, V_IN_DEGREE, 0);
+        vertexCount++;
+        vertexTable.insert(vertex, hash, vertexEnd);
+        return vertex;
+    }
+
+    /*
+     * Return the record of the edge from source to target, or NIL if there is
+     * none.
+     */
+    private int findEdge(int source, int target) {
+        for (int i = edgeHash(source, target) & edgeTable.mask; ; i = (i + 1) & edgeTable.mask) {
+            int slot = edgeTable.slots.get(i);
+            if (slot == 0) {
+                return NIL;
+            }
+            int edge = slot - 1;
+            if (edgeField(edge, E_SOURCE) == source && edgeField(edge, E_TARGET) == target) {
+                return edge;
+            }
+        }
+    }
+
+    private void addEdge(int source, int target, int weight) {
+        int edge;
+        if (freeEdge != NIL) {
+            edge = freeEdge;
+            freeEdge = edgeField(edge, E_NEXT_OUT);
+        } else {
+            if (edgeEnd == MAX_EDGES) {
+                throw new IllegalStateException("too many edges");
+            }
+            edge = edgeEnd++;
+            edgeRecords.ensure((long) edgeEnd * EDGE_INTS);
+        }
+        setEdgeField(edge, E_SOURCE, source);
+        setEdgeField(edge, E_TARGET, target);
+        setEdgeField(edge, E_WEIGHT, weight);
+
+        int lastOut = vertexField(source, V_OUT_TAIL);
+        setEdgeField(edge, E_PREV_OUT, lastOut);
+        setEdgeField(edge, E_NEXT_OUT, NIL);
+        if (lastOut == NIL) {
+            setVertexField(source, V_OUT_HEAD, edge);
+        } else {
+            setEdgeField(lastOut, E_NEXT_OUT, edge);
+        }
+        setVertexField(source, V_OUT_TAIL, edge);
+        setVertexField(source, V_OUT_DEGREE, vertexField(source, V_OUT_DEGREE) + 1);
+
+        int lastIn = vertexField(target, V_IN_TAIL);
+        setEdgeField(edge, E_PREV_IN, lastIn);
+        setEdgeField(edge, E_NEXT_IN, NIL);
+        if (lastIn == NIL) {
+            setVertexField(target, V_IN_HEAD, edge);
+        } else {
+            setEdgeField(lastIn, E_NEXT_IN, edge);
+        }
+        setVertexField(target, V_IN_TAIL, edge);
+        setVertexField(target, V_IN_DEGREE, vertexField(target, V_IN_DEGREE) + 1);
+
+        edgeCount++;
+        edgeTable.insert(edge, edgeHash(source, target), edgeEnd);
+    }
+
+    private void removeEdge(int edge) {
+        int source = edgeField(edge, E_SOURCE);
+        int target = edgeField(edge, E_TARGET);
+        edgeTable.remove(edge, edgeHash(source, target));
+
+        int prevOut = edgeField(edge, E_PREV_OUT);
+        int nextOut = edgeField(edge, E_NEXT_OUT);
+        if (prevOut == NIL) {
+            setVertexField(source, V_OUT_HEAD, nextOut);
+        } else {
+            setEdgeField(prevOut, E_NEXT_OUT, nextOut);
+        }
+        if (nextOut == NIL) {
+            setVertexField(source, V_OUT_TAIL, prevOut);
+        } else {
+            setEdgeField(nextOut, E_PREV_OUT, prevOut);
+        }
+        setVertexField(source, V_OUT_DEGREE, vertexField(source, V_OUT_DEGREE) - 1);
+
+        int prevIn = edgeField(edge, E_PREV_IN);
+        int nextIn = edgeField(edge, E_NEXT_IN);
+        if (prevIn == NIL) {
+            setVertexField(target, V_IN_HEAD, nextIn);
+        } else {
+            setEdgeField(prevIn, E_NEXT_IN, nextIn);
+        }
+        if (nextIn == NIL) {
+            setVertexField(target, V_IN_TAIL, prevIn);
+        } else {
+            setEdgeField(nextIn, E_PREV_IN, prevIn);
+        }
+        setVertexField(target, V_IN_DEGREE, vertexField(target, V_IN_DEGREE) - 1);
+
+        setEdgeField(edge, E_WEIGHT, 0);
+        setEdgeField(edge, E_NEXT_OUT, freeEdge);
+        freeEdge = edge;
+        edgeCount--;
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        byte[] bytes = codec.encode(vertex);
+        int hash = labelHash(bytes);
+        if (find(bytes, hash) != NIL) {
+            return false;
+        }
+        addVertex(bytes, hash);
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        int v = find(vertex);
+        if (v == NIL) {
+            return false;
+        }
+        while (vertexField(v, V_OUT_HEAD) != NIL) {
+            removeEdge(vertexField(v, V_OUT_HEAD));
+        }
+        while (vertexField(v, V_IN_HEAD) != NIL) {
+            removeEdge(vertexField(v, V_IN_HEAD));
+        }
+        vertexTable.remove(v, vertexField(v, V_HASH));
+        setVertexField(v, V_LABEL_LENGTH, -1);
+        setVertexField(v, V_OUT_HEAD, freeVertex);
+        freeVertex = v;
+        vertexCount--;
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        byte[] sourceBytes = codec.encode(source);
+        byte[] targetBytes = codec.encode(target);
+        int s = find(sourceBytes, labelHash(sourceBytes));
+        int t = find(targetBytes, labelHash(targetBytes));
+        int edge = s == NIL || t == NIL ? NIL : findEdge(s, t);
+        int previous = edge == NIL ? 0 : edgeField(edge, E_WEIGHT);
+        if (weight > 0) {
+            if (edge != NIL) {
+                setEdgeField(edge, E_WEIGHT, weight);
+            } else {
+                // Look target up again: it may be source, just added
+                s = s == NIL ? findOrAdd(sourceBytes) : s;
+                t = findOrAdd(targetBytes);
+                addEdge(s, t, weight);
+            }
+        } else if (edge != NIL) {
+            removeEdge(edge);
+        }
+        checkRep();
+        return previous;
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
+        byte[] sourceBytes = codec.encode(source);
+        byte[] targetBytes = codec.encode(target);
+        int s = find(sourceBytes, labelHash(sourceBytes));
+        int t = find(targetBytes, labelHash(targetBytes));
+        int edge = s == NIL || t == NIL ? NIL : findEdge(s, t);
+        int weight = (edge == NIL ? 0 : edgeField(edge, E_WEIGHT)) + delta;
+        if (weight > 0) {
+            if (edge != NIL) {
+                setEdgeField(edge, E_WEIGHT, weight);
+            } else {
+                s = s == NIL ? findOrAdd(sourceBytes) : s;
+                t = findOrAdd(targetBytes);
+                addEdge(s, t, weight);
+            }
+        } else if (edge != NIL) {
+            removeEdge(edge);
+        }
+        checkRep();
+        return Math.max(weight, 0);
+    }
+
+    /**
+     * @return an unmodifiable view of the vertices, in no particular order,
+     *         that decodes each label as it is visited
+     */
+    @Override
+    public Set<L> vertices() {
+        return new AbstractSet<L>() {
+            @Override
+            public int size() {
+                return vertexCount;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object o) {
+                if (o == null) {
+                    return false;
+                }
+                try {
+                    return find((L) o) != NIL;
+                } catch (ClassCastException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public Iterator<L> iterator() {
+                return new Iterator<L>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        int v = from;
+                        while (v < vertexEnd && !live(v)) {
+                            v++;
+                        }
+                        return v;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < vertexEnd;
+                    }
+
+                    @Override
+                    public L next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        L label = label(next);
+                        next = advance(next + 1);
+                        return label;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        Map<L, Integer> sources = new LinkedHashMap<>();
+        forEachSource(target, sources::put);
+        return sources;
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        Map<L, Integer> targets = new LinkedHashMap<>();
+        forEachTarget(source, targets::put);
+        return targets;
+    }
+
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        int s = find(source);
+        if (s == NIL) {
+            return;
+        }
+        for (int edge = vertexField(s, V_OUT_HEAD); edge != NIL; edge = edgeField(edge, E_NEXT_OUT)) {
+            action.accept(label(edgeField(edge, E_TARGET)), edgeField(edge, E_WEIGHT));
+        }
+    }
+
+    @Override
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        int t = find(target);
+        if (t == NIL) {
+            return;
+        }
+        for (int edge = vertexField(t, V_IN_HEAD); edge != NIL; edge = edgeField(edge, E_NEXT_IN)) {
+            action.accept(label(edgeField(edge, E_SOURCE)), edgeField(edge, E_WEIGHT));
+        }
+    }
+
+    @Override
+    public int weight(L source, L target) {
+        int s = find(source);
+        int t = s == NIL ? NIL : find(target);
+        int edge = t == NIL ? NIL : findEdge(s, t);
+        return edge == NIL ? 0 : edgeField(edge, E_WEIGHT);
+    }
+
+    @Override
+    public int outDegree(L source) {
+        int s = find(source);
+        return s == NIL ? 0 : vertexField(s, V_OUT_DEGREE);
+    }
+
+    @Override
+    public int inDegree(L target) {
+        int t = find(target);
+        return t == NIL ? 0 : vertexField(t, V_IN_DEGREE);
+    }
+
+    /**
+     * @return the edges of this graph, in no particular order; the stream
+     *         splits evenly by edge record, but is not SIZED, since free
+     *         records are skipped
+     */
+    @Override
+    public Stream<Edge<L>> edges() {
+        return IntStream.range(0, edgeEnd)
+                .filter(edge -> edgeField(edge, E_WEIGHT) > 0)
+                .mapToObj(edge -> new Edge<>(label(edgeField(edge, E_SOURCE)), label(edgeField(edge, E_TARGET)),
+                        edgeField(edge, E_WEIGHT)));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Graph with vertices:\n");
+        for (L vertex : vertices()) {
+            builder.append(vertex).append("\n");
+        }
+        builder.append("And edges:\n");
+        for (int edge = 0; edge < edgeEnd; edge++) {
+            int weight = edgeField(edge, E_WEIGHT);
+            if (weight > 0) {
+                builder.append(new Edge<>(label(edgeField(edge, E_SOURCE)), label(edgeField(edge, E_TARGET)), weight))
+                        .append("\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * An open-addressing hash table of record numbers, with linear probing.
+     * Slot i of slots holds 0 if it is empty, or 1 + the number of a record.
+     */
+    private abstract class Table {
+        private OffHeapMemory.Ints slots;
+        private int mask;
+        private int size = 0;
+
+        Table() {
+            // A table takes at least one chunk, so start with a full one
+            allocate(Math.max(MIN_SLOTS, memory.chunkSize() / Integer.BYTES));
+        }
+
+        /*
+         * Return the hash of the record, the same one it was inserted with.
+         */
+        abstract int hash(int record);
+
+        /*
+         * Return whether the record is in use, and so belongs in the table.
+         */
+        abstract boolean holds(int record);
+
+        private void allocate(int capacity) {
+            slots = new OffHeapMemory.Ints(memory);
+            slots.ensure(capacity);
+            mask = capacity - 1;
+        }
+
+        /*
+         * Insert a record that is not in the table; end is one past the
+         * highest record number in use. Keeps the table at most half full.
+         */
+        void insert(int record, int hash, int end) {
+            size++;
+            if (2L * size > mask + 1) {
+                // The old slots' memory is not reclaimed; doubling keeps the
+                // waste below the size of the current table
+                allocate((mask + 1) * 2);
+                for (int i = 0; i < end; i++) {
+                    if (i != record && holds(i)) {
+                        place(i, hash(i));
+                    }
+                }
+            }
+            place(record, hash);
+        }
+
+        private void place(int record, int hash) {
+            int i = hash & mask;
+            while (slots.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+            slots.set(i, record + 1);
+        }
+
+        /*
+         * Remove a record that is in the table, shifting later records of its
+         * probe sequence back so that no lookup stops early.
+         */
+        void remove(int record, int hash) {
+            int i = hash & mask;
+            while (slots.get(i) != record + 1) {
+                i = (i + 1) & mask;
+            }
+            for (int j = (i + 1) & mask; slots.get(j) != 0; j = (j + 1) & mask) {
+                int slot = slots.get(j);
+                int home = hash(slot - 1) & mask;
+                // Move it to i unless its home lies cyclically in (i, j]
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    slots.set(i, slot);
+                    i = j;
+                }
+            }
+            slots.set(i, 0);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory outside the Java heap, handed out in chunks of a fixed power-of-two
+ * size: direct buffers, or consecutive regions of a memory-mapped file that
+ * grows by one chunk at a time. A new chunk is filled with zeros.
+ *
+ * <p>Ints and Bytes are growable arrays made of such chunks. Only their
+ * arrays of chunk references live on the heap, so the heap they take grows
+ * with the number of chunks, not with their contents. Not safe for use by
+ * concurrent threads.
+ */
+final class OffHeapMemory implements Closeable {
+    static final int MIN_CHUNK_SIZE = 1 << 12;
+    static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    private final int chunkSize;
+    private final FileChannel file;
+    private long allocated = 0;
+
+    // Abstraction function:
+    //   Represents a source of zeroed chunks of chunkSize bytes, from the
+    //   direct memory of the process if file is null, otherwise from file;
+    //   allocated bytes have been handed out so far
+    // Representation invariant:
+    //   chunkSize is a power of two between MIN_CHUNK_SIZE and MAX_CHUNK_SIZE
+    //   if file is not null, its first allocated bytes are the chunks handed out
+    // Safety from rep exposure:
+    //   all fields are private; chunks are handed out on purpose, and file is
+    //   never returned
+
+    private OffHeapMemory(int chunkSize, FileChannel file) {
+        if (Integer.bitCount(chunkSize) != 1 || chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunk size must be a power of two from "
+                    + MIN_CHUNK_SIZE + " to " + MAX_CHUNK_SIZE + ": " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.file = file;
+    }
+
+    /**
+     * @param chunkSize size of each chunk in bytes, a power of two
+     * @return memory whose chunks are direct buffers
+     */
+    static OffHeapMemory direct(int chunkSize) {
+        return new OffHeapMemory(chunkSize, null);
+    }
+
+    /**
+     * @param path file to map chunks from; created, or truncated if it exists
+     * @param chunkSize size of each chunk in bytes, a power of two
+     * @return memory whose chunks are consecutive regions of the file
+     * @throws IOException if the file cannot be opened
+     */
+    static OffHeapMemory mapped(Path path, int chunkSize) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new OffHeapMemory(chunkSize, file);
+        } catch (IllegalArgumentException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return size of each chunk in bytes
+     */
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return number of bytes handed out as chunks so far
+     */
+    long allocated() {
+        return allocated;
+    }
+
+    /**
+     * @return a new zeroed chunk of chunkSize() bytes, in native byte order
+     * @throws UncheckedIOException if the file cannot be extended and mapped
+     */
+    ByteBuffer chunk() {
+        ByteBuffer chunk;
+        if (file == null) {
+            chunk = ByteBuffer.allocateDirect(chunkSize);
+        } else {
+            try {
+                // Mapping past the end of the file extends it with zeros
+                chunk = file.map(FileChannel.MapMode.READ_WRITE, allocated, chunkSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        allocated += chunkSize;
+        return chunk.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Release the file, if any. Chunks already handed out stay usable until
+     * they are garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    /**
+     * A growable array of ints, initially zero, made of chunks.
+     */
+    static final class Ints {
+        private final OffHeapMemory memory;
+        private final int shift;
+        private final int mask;
+        private IntBuffer[] chunks = new IntBuffer[0];
+
+        // Abstraction function:
+        //   Represents the array whose element i is chunks[i >>> shift].get(i & mask)
+        // Representation invariant:
+        //   each chunk holds 1 << shift ints, and mask == (1 << shift) - 1
+        // Safety from rep exposure:
+        //   all fields are private, and chunks are never returned
+
+        Ints(OffHeapMemory memory) {
+            this.memory = memory;
+            this.shift = Integer.numberOfTrailingZeros(memory.chunkSize() / Integer.BYTES);
+            this.mask = (1 << shift) - 1;
+        }
+
+        /**
+         * Make sure the array has at least length elements.
+         *
+         * @param length number of elements needed
+         */
+        void ensure(long length) {
+            if (length <= ((long) chunks.length << shift)) {
+                return;
+            }
+            int count = (int) ((length + mask) >>> shift);
+            int old = chunks.length;
+            chunks = Arrays.copyOf(chunks, count);
+            for (int i = old; i < count; i++) {
+                chunks[i] = memory.chunk().asIntBuffer();
+            }
+        }
+
+        int get(int index) {
+            return chunks[index >>> shift].get(index & mask);
+        }
+
+        void set(int index, int value) {
+            chunks[index >>> shift].put(index & mask, value);
+        }
+    }
+
+    /**
+     * An append-only store of byte strings, each kept within one chunk so
+     * that it can be read as one buffer.
+     */
+    static final class Bytes {
+        private final OffHeapMemory memory;
+        private final int shift;
+        private final int mask;
+        private ByteBuffer[] chunks = new ByteBuffer[0];
+        private int position = 0;
+
+        // Abstraction function:
+        //   Represents the byte strings appended so far; the one at address a
+        //   starts at byte a & mask of chunks[a >>> shift]
+        // Representation invariant:
+        //   0 <= position <= chunk size, and position is the number of bytes
+        //   used in the last chunk
+        // Safety from rep exposure:
+        //   all fields are private; only read-only views of chunks are returned
+
+        Bytes(OffHeapMemory memory) {
+            this.memory = memory;
+            this.shift = Integer.numberOfTrailingZeros(memory.chunkSize());
+            this.mask = memory.chunkSize() - 1;
+            this.position = memory.chunkSize();
+        }
+
+        /**
+         * @param bytes bytes to store, at most one chunk long
+         * @return address of the stored copy of bytes
+         */
+        long append(byte[] bytes) {
+            if (bytes.length > memory.chunkSize()) {
+                throw new IllegalArgumentException("longer than a chunk: " + bytes.length + " bytes");
+            }
+            if (position + bytes.length > memory.chunkSize()) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = memory.chunk();
+                position = 0;
+            }
+            ByteBuffer chunk = chunks[chunks.length - 1];
+            for (int i = 0; i < bytes.length; i++) {
+                chunk.put(position + i, bytes[i]);
+            }
+            long address = ((long) (chunks.length - 1) << shift) | position;
+            position += bytes.length;
+            return address;
+        }
+
+        /**
+         * @param address address returned by append()
+         * @param length length of the bytes stored there
+         * @return a read-only buffer of those bytes, from its position to its limit
+         */
+        ByteBuffer view(long address, int length) {
+            ByteBuffer view = chunks[(int) (address >>> shift)].asReadOnlyBuffer();
+            int offset = (int) (address & mask);
+            view.limit(offset + length).position(offset);
+            return view;
+        }
+
+        /**
+         * @param address address returned by append()
+         * @param bytes bytes to compare with those stored there, which must
+         *              be bytes.length long
+         * @return whether they are equal
+         */
+        boolean equals(long address, byte[] bytes) {
+            ByteBuffer chunk = chunks[(int) (address >>> shift)];
+            int offset = (int) (address & mask);
+            for (int i = 0; i < bytes.length; i++) {
+                if (chunk.get(offset + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
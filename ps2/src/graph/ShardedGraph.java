@@ -0,0 +1,372 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe weighted directed graph whose vertices, with the edges
+ * leaving them, are hash-partitioned across a fixed number of independent
+ * shards.
+ *
+ * <p>Each shard is an ordinary single-threaded Graph guarded by its own
+ * read-write lock. A vertex belongs to shard shardOf(vertex), which holds its
+ * edges out; a shard that holds an edge into a vertex of another shard also
+ * holds that vertex as a ghost, with no edges out, so the shard can answer
+ * sources() on its own. Writes lock only the shards of the vertices they
+ * touch, so updates to vertices of different shards proceed in parallel;
+ * targets(), weight() and outDegree() read one shard. sources(), inDegree(),
+ * vertices() and edgeCount() ask every shard at once, in parallel on the
+ * common fork-join pool, and merge the answers in shard order.
+ *
+ * <p>Consistency: every single-edge update (set, increment) and every vertex
+ * update (add, remove) is atomic with respect to the other updates. A query
+ * answered by one shard sees that shard at one moment; a query that fans out
+ * sees each shard at some moment during the call, and includes every update
+ * that completed before the call began. vertices() returns an unmodifiable
+ * snapshot.
+ *
+ * <p>shardOf() depends only on the label's hashCode() and the shard count, so
+ * the same partitioning can place shards in separate processes.
+ */
+public class ShardedGraph<L> implements Graph<L> {
+    private final Shard<L>[] shards;
+
+    /**
+     * Abstraction function:
+     *   Represents the graph whose vertices are the vertices v of
+     *   shards[shardOf(v)].graph, with an edge s -> t of weight w for every
+     *   such edge of shards[shardOf(s)].graph.
+     *
+     * Representation invariant:
+     *   - every edge of shards[i].graph leaves a vertex v with shardOf(v) == i.
+     *   - a vertex v of shards[i].graph with shardOf(v) != i (a ghost) has
+     *     at least one edge in, and v is a vertex of shards[shardOf(v)].graph.
+     *
+     * Safety from rep exposure:
+     *   - shards is private and final, and neither shards nor their graphs are
+     *     ever returned.
+     *   - vertices(), sources() and targets() return new collections.
+     *
+     * Thread safety argument:
+     *   - a shard's graph is only read holding its read lock, and only written
+     *     holding its write lock.
+     *   - writers take the write locks of all the shards they touch before
+     *     touching any, in increasing index order, so they cannot deadlock,
+     *     and every update is atomic.
+     *   - readers hold at most one read lock at a time, and never call client
+     *     code while holding it.
+     */
+    private void checkRep(L source, L target) {
+        Graph<L> owner = shards[shardOf(source)].graph;
+        if (owner.weight(source, target) > 0) {
+            assert shards[shardOf(target)].graph.vertices().contains(target) : "edge target must be a vertex";
+        }
+    }
+
+    /**
+     * One partition of the graph, and the lock guarding it.
+     */
+    private static final class Shard<L> {
+        final Graph<L> graph;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        Shard(Graph<L> graph) {
+            this.graph = graph;
+        }
+    }
+
+    /**
+     * Make an empty graph with one shard per available processor.
+     */
+    public ShardedGraph() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Make an empty graph whose shards are ConcreteEdgesGraphs.
+     *
+     * @param shardCount number of shards, at least 1
+     */
+    public ShardedGraph(int shardCount) {
+        this(shardCount, ConcreteEdgesGraph::new);
+    }
+
+    /**
+     * Make an empty graph.
+     *
+     * @param shardCount number of shards, at least 1
+     * @param factory makes the empty graph of each shard; the graphs need
+     *                not be thread-safe
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ShardedGraph(int shardCount, Supplier<? extends Graph<L>> factory) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shard count must be positive: " + shardCount);
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard<>(factory.get());
+        }
+    }
+
+    /**
+     * @return number of shards
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @param vertex a label
+     * @return index of the shard that owns vertex, from 0 to shardCount() - 1
+     */
+    public int shardOf(L vertex) {
+        int h = vertex.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    private void lock(int first, int second) {
+        shards[Math.min(first, second)].lock.writeLock().lock();
+        if (first != second) {
+            shards[Math.max(first, second)].lock.writeLock().lock();
+        }
+    }
+
+    private void unlock(int first, int second) {
+        if (first != second) {
+            shards[Math.max(first, second)].lock.writeLock().unlock();
+        }
+        shards[Math.min(first, second)].lock.writeLock().unlock();
+    }
+
+    /*
+     * Run a query on one shard, holding its read lock.
+     */
+    private <R> R read(int shard, Function<Graph<L>, R> query) {
+        ReentrantReadWriteLock.ReadLock lock = shards[shard].lock.readLock();
+        lock.lock();
+        try {
+            return query.apply(shards[shard].graph);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Run a query on every shard in parallel, each holding its shard's read
+     * lock, and return the answers in shard order.
+     */
+    private <R> List<R> fanOut(Function<Graph<L>, R> query) {
+        if (shards.length == 1) {
+            return Collections.singletonList(read(0, query));
+        }
+        return IntStream.range(0, shards.length).parallel()
+                .mapToObj(shard -> read(shard, query))
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * Drop target from the shard of source if it is a ghost there with no
+     * edges left into it. Requires the write lock of that shard.
+     */
+    private void pruneGhost(int shard, L target) {
+        if (shard != shardOf(target) && shards[shard].graph.inDegree(target) == 0) {
+            shards[shard].graph.remove(target);
+        }
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        int shard = shardOf(vertex);
+        lock(shard, shard);
+        try {
+            return shards[shard].graph.add(vertex);
+        } finally {
+            unlock(shard, shard);
+        }
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        for (Shard<L> shard : shards) {
+            shard.lock.writeLock().lock();
+        }
+        try {
+            int owner = shardOf(vertex);
+            Graph<L> graph = shards[owner].graph;
+            List<L> targets = new ArrayList<>(graph.targets(vertex).keySet());
+            if (!graph.remove(vertex)) {
+                return false;
+            }
+            for (L target : targets) {
+                pruneGhost(owner, target);
+            }
+            for (int i = 0; i < shards.length; i++) {
+                if (i != owner) {
+                    shards[i].graph.remove(vertex);
+                }
+            }
+            return true;
+        } finally {
+            for (int i = shards.length - 1; i >= 0; i--) {
+                shards[i].lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        int from = shardOf(source);
+        int to = shardOf(target);
+        lock(from, to);
+        try {
+            int previous = shards[from].graph.set(source, target, weight);
+            if (weight > 0) {
+                shards[to].graph.add(target);
+            } else {
+                pruneGhost(from, target);
+            }
+            checkRep(source, target);
+            return previous;
+        } finally {
+            unlock(from, to);
+        }
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
+        int from = shardOf(source);
+        int to = shardOf(target);
+        lock(from, to);
+        try {
+            int weight = shards[from].graph.increment(source, target, delta);
+            if (weight > 0) {
+                shards[to].graph.add(target);
+            } else {
+                pruneGhost(from, target);
+            }
+            checkRep(source, target);
+            return weight;
+        } finally {
+            unlock(from, to);
+        }
+    }
+
+    @Override
+    public Set<L> vertices() {
+        List<List<L>> owned = fanOut(graph -> graph.vertices().stream()
+                .filter(vertex -> graph == shards[shardOf(vertex)].graph)
+                .collect(Collectors.toList()));
+        Set<L> vertices = new LinkedHashSet<>();
+        for (List<L> shard : owned) {
+            vertices.addAll(shard);
+        }
+        return Collections.unmodifiableSet(vertices);
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        Map<L, Integer> sources = new LinkedHashMap<>();
+        for (Map<L, Integer> shard : fanOut(graph -> graph.sources(target))) {
+            sources.putAll(shard);
+        }
+        return sources;
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return read(shardOf(source), graph -> graph.targets(source));
+    }
+
+    /**
+     * Visit the edges leaving a vertex, as they were at one moment; the edges
+     * are copied under the read lock of its shard and visited after releasing
+     * it, so action may use this graph.
+     */
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        targets(source).forEach(action::accept);
+    }
+
+    @Override
+    public int weight(L source, L target) {
+        return read(shardOf(source), graph -> graph.weight(source, target));
+    }
+
+    @Override
+    public int outDegree(L source) {
+        return read(shardOf(source), graph -> graph.outDegree(source));
+    }
+
+    @Override
+    public int inDegree(L target) {
+        int degree = 0;
+        for (int shard : fanOut(graph -> graph.inDegree(target))) {
+            degree += shard;
+        }
+        return degree;
+    }
+
+    /**
+     * @return number of edges in this graph, counted by every shard in parallel
+     */
+    public long edgeCount() {
+        long count = 0;
+        for (long shard : fanOut(GraphMetrics::edgeCount)) {
+            count += shard;
+        }
+        return count;
+    }
+
+    /*
+     * Count the ghost vertices held by every shard; for testing.
+     */
+    long ghostCount() {
+        long count = 0;
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            count += read(shard, graph -> graph.vertices().stream()
+                    .filter(vertex -> shardOf(vertex) != shard)
+                    .count());
+        }
+        return count;
+    }
+
+    /**
+     * @return the edges of this graph, by shard; each shard copies its edges
+     *         in parallel, under its read lock, so the stream is a snapshot
+     *         of each shard that may be used while the graph changes
+     */
+    @Override
+    public Stream<Edge<L>> edges() {
+        return fanOut(graph -> graph.edges().collect(Collectors.toList())).stream()
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Graph with vertices:\n");
+        Set<L> vertices = vertices();
+        for (L vertex : vertices) {
+            builder.append(vertex).append("\n");
+        }
+        builder.append("And edges:\n");
+        for (L vertex : vertices) {
+            forEachTarget(vertex, (target, weight) ->
+                    builder.append(new Edge<>(vertex, target, weight)).append("\n"));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,384 @@
+package graph;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A weighted directed graph with generic vertex labels that changes by
+ * publishing a sequence of immutable versions.
+ *
+ * <p>Readers call current() and get a Version: an immutable, consistent Graph
+ * that they can read for as long as they like, without locks, while writers
+ * go on to publish later versions. A writer calls update() with a function
+ * that modifies a private draft of the next version; when the function
+ * returns, the draft is published atomically as the new current version.
+ * Updates run one at a time.
+ *
+ * <p>Versions share structure: the vertices of a version are kept in a
+ * persistent hash trie, and the edges of each vertex in their own maps. A
+ * draft copies the trie path and the edge maps of only the vertices it
+ * changes, each at most once, so an update costs time in proportion to the
+ * changes it makes (and the degrees of the vertices it touches), never to
+ * the size of the graph.
+ *
+ * <p>A VersionedGraph remembers a bounded number of its most recent versions,
+ * which version() can return; older versions are forgotten and can be
+ * reclaimed as soon as no reader holds them.
+ */
+public final class VersionedGraph<L> {
+    private final int retained;
+    private final Deque<Version<L>> history = new ArrayDeque<>();
+    private volatile Version<L> current;
+
+    // Abstraction function:
+    //   Represents the sequence of versions published so far, of which the
+    //   last is current and the last history.size() are history.
+    // Representation invariant:
+    //   retained >= 1, 1 <= history.size() <= retained
+    //   history holds versions with consecutive numbers, ending with current
+    // Safety from rep exposure:
+    //   all fields are private; versions are immutable, and history is never returned
+    // Thread safety argument:
+    //   current is volatile and refers to an immutable Version that is fully
+    //   built before it is published; history and publishing are guarded by
+    //   the lock on history, which also serializes update()
+
+    private void checkRep() {
+        assert retained >= 1 : "must retain at least the current version";
+        assert !history.isEmpty() && history.size() <= retained : "history must be bounded";
+        assert history.peekLast() == current : "history must end with the current version";
+    }
+
+    /**
+     * Make a graph whose first version, numbered 0, is empty.
+     *
+     * @param retained number of most recent versions to remember, at least 1
+     */
+    public VersionedGraph(int retained) {
+        this(Graph.empty(), retained);
+    }
+
+    /**
+     * Make a graph whose first version, numbered 0, has the same vertices and
+     * edges as another graph. If initial is a Version, it is shared rather
+     * than copied, and keeps its number.
+     *
+     * @param initial graph to start from; it is only read
+     * @param retained number of most recent versions to remember, at least 1
+     */
+    public VersionedGraph(Graph<L> initial, int retained) {
+        if (retained < 1) {
+            throw new IllegalArgumentException("must retain at least one version: " + retained);
+        }
+        this.retained = retained;
+        if (initial instanceof Version) {
+            this.current = (Version<L>) initial;
+        } else {
+            Draft<L> draft = new Draft<>(PersistentMap.empty());
+            for (L vertex : initial.vertices()) {
+                draft.add(vertex);
+            }
+            for (L vertex : initial.vertices()) {
+                initial.forEachTarget(vertex, (target, weight) -> draft.set(vertex, target, weight));
+            }
+            this.current = draft.publish(0);
+        }
+        history.addLast(current);
+        checkRep();
+    }
+
+    /**
+     * @return the latest published version; reading it costs no more than
+     *         reading the field
+     */
+    public Version<L> current() {
+        return current;
+    }
+
+    /**
+     * Find a remembered version.
+     *
+     * @param number number of the version
+     * @return the version with that number, if it is one of the versions
+     *         this graph remembers
+     */
+    public Optional<Version<L>> version(long number) {
+        synchronized (history) {
+            for (Version<L> version : history) {
+                if (version.number() == number) {
+                    return Optional.of(version);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Make and publish the next version. changes is given a mutable draft of
+     * the next version, starting out equal to the current one; it must not
+     * use the draft after it returns. If changes throws an exception, nothing
+     * is published.
+     *
+     * @param changes function that modifies the draft
+     * @return the version published, numbered one more than the previous one
+     */
+    public Version<L> update(Consumer<? super Graph<L>> changes) {
+        synchronized (history) {
+            Draft<L> draft = new Draft<>(current.vertices);
+            changes.accept(draft);
+            Version<L> next = draft.publish(current.number + 1);
+            current = next;
+            history.addLast(next);
+            if (history.size() > retained) {
+                history.removeFirst();
+            }
+            checkRep();
+            return next;
+        }
+    }
+
+    /**
+     * The edges leaving and entering one vertex. Adjacency objects reachable
+     * from a published version are never modified; a draft modifies only the
+     * ones it made itself. owner is a token of the draft that made it, not
+     * the draft, so that an adjacency shared by later versions does not keep
+     * the draft's vertices, and so every earlier version, reachable.
+     */
+    private static final class Adjacency<L> {
+        final ObjectIntMap<L> out;
+        final ObjectIntMap<L> in;
+        final Object owner;
+
+        Adjacency(Object owner) {
+            this.out = new ObjectIntMap<>();
+            this.in = new ObjectIntMap<>();
+            this.owner = owner;
+        }
+
+        Adjacency(Adjacency<L> adjacency, Object owner) {
+            this.out = new ObjectIntMap<>(adjacency.out);
+            this.in = new ObjectIntMap<>(adjacency.in);
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Read operations shared by versions and drafts.
+     */
+    private abstract static class Reader<L> implements Graph<L> {
+        abstract PersistentMap<L, Adjacency<L>> map();
+
+        @Override
+        public Set<L> vertices() {
+            final PersistentMap<L, Adjacency<L>> vertices = map();
+            return new AbstractSet<L>() {
+                @Override
+                public boolean contains(Object o) {
+                    return vertices.get(o) != null;
+                }
+
+                @Override
+                public Iterator<L> iterator() {
+                    return Collections.unmodifiableList(vertices.keys()).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return vertices.size();
+                }
+            };
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            Adjacency<L> adjacency = map().get(target);
+            return adjacency == null ? Collections.emptyMap() : adjacency.in.toMap();
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            Adjacency<L> adjacency = map().get(source);
+            return adjacency == null ? Collections.emptyMap() : adjacency.out.toMap();
+        }
+
+        @Override
+        public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+            Adjacency<L> adjacency = map().get(source);
+            if (adjacency != null) {
+                adjacency.out.forEach(action);
+            }
+        }
+
+        @Override
+        public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+            Adjacency<L> adjacency = map().get(target);
+            if (adjacency != null) {
+                adjacency.in.forEach(action);
+            }
+        }
+
+        @Override
+        public int weight(L source, L target) {
+            Adjacency<L> adjacency = map().get(source);
+            return adjacency == null ? 0 : adjacency.out.get(target);
+        }
+
+        @Override
+        public int outDegree(L source) {
+            Adjacency<L> adjacency = map().get(source);
+            return adjacency == null ? 0 : adjacency.out.size();
+        }
+
+        @Override
+        public int inDegree(L target) {
+            Adjacency<L> adjacency = map().get(target);
+            return adjacency == null ? 0 : adjacency.in.size();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Graph with vertices:\n");
+            map().forEach((label, adjacency) ->
+                    builder.append(label).append(" -> ").append(adjacency.out).append("\n"));
+            return builder.toString();
+        }
+    }
+
+    /**
+     * An immutable version of a VersionedGraph. Every mutator throws
+     * UnsupportedOperationException. Within the maps and iterations of one
+     * vertex, neighbors are in the order their edges were added.
+     */
+    public static final class Version<L> extends Reader<L> {
+        private final long number;
+        private final PersistentMap<L, Adjacency<L>> vertices;
+
+        private Version(long number, PersistentMap<L, Adjacency<L>> vertices) {
+            this.number = number;
+            this.vertices = vertices;
+        }
+
+        @Override
+        PersistentMap<L, Adjacency<L>> map() {
+            return vertices;
+        }
+
+        /**
+         * @return the number of this version; each update publishes a version
+         *         numbered one more than the one before
+         */
+        public long number() {
+            return number;
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            throw new UnsupportedOperationException("published version cannot be modified");
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            throw new UnsupportedOperationException("published version cannot be modified");
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            throw new UnsupportedOperationException("published version cannot be modified");
+        }
+    }
+
+    /**
+     * The mutable next version, while an update is being made.
+     */
+    private static final class Draft<L> extends Reader<L> {
+        private final Object token = new Object();
+        private PersistentMap<L, Adjacency<L>> vertices;
+        private boolean published = false;
+
+        Draft(PersistentMap<L, Adjacency<L>> vertices) {
+            this.vertices = vertices;
+        }
+
+        @Override
+        PersistentMap<L, Adjacency<L>> map() {
+            return vertices;
+        }
+
+        Version<L> publish(long number) {
+            published = true;
+            return new Version<>(number, vertices);
+        }
+
+        /*
+         * The adjacency of vertex, copied first unless this draft made it;
+         * null if vertex is missing and create is false.
+         */
+        private Adjacency<L> own(L vertex, boolean create) {
+            if (published) {
+                throw new IllegalStateException("draft was already published");
+            }
+            Adjacency<L> adjacency = vertices.get(vertex);
+            if (adjacency == null) {
+                if (!create) {
+                    return null;
+                }
+                adjacency = new Adjacency<>(token);
+            } else if (adjacency.owner == token) {
+                return adjacency;
+            } else {
+                adjacency = new Adjacency<>(adjacency, token);
+            }
+            vertices = vertices.put(vertex, adjacency);
+            return adjacency;
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            if (vertices.get(vertex) != null) {
+                return false;
+            }
+            own(vertex, true);
+            return true;
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            Adjacency<L> adjacency = own(vertex, false);
+            if (adjacency == null) {
+                return false;
+            }
+            vertices = vertices.remove(vertex);
+            adjacency.out.forEach((target, weight) -> {
+                Adjacency<L> other = own(target, false);
+                if (other != null) {
+                    other.in.remove(vertex);
+                }
+            });
+            adjacency.in.forEach((source, weight) -> {
+                Adjacency<L> other = own(source, false);
+                if (other != null) {
+                    other.out.remove(vertex);
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            if (weight > 0) {
+                Adjacency<L> from = own(source, true);
+                Adjacency<L> to = own(target, true);
+                int previous = from.out.put(target, weight);
+                to.in.put(source, weight);
+                return previous;
+            }
+            if (weight(source, target) == 0) {
+                return 0; // nothing to copy
+            }
+            int previous = own(source, false).out.remove(target);
+            own(target, false).in.remove(source);
+            return previous;
+        }
+    }
+}
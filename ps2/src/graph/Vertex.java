@@ -1,19 +1,23 @@
 package graph;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 /**
  * A mutable class representing a vertex in a directed, weighted graph.
- * Each vertex maintains a map of its outgoing edges to other vertices.
+ * Each vertex maintains a map of its outgoing edges to other vertices,
+ * and a map of its incoming edges from other vertices. Weights are stored
+ * as primitive ints, with no object per edge.
  */
 class Vertex<L> {
     private final L label;
-    private final Map<L, Integer> edges;
+    private final ObjectIntMap<L> edges;
+    private final ObjectIntMap<L> sources;
 
     public Vertex(L label) {
         this.label = label;
-        this.edges = new HashMap<>();
+        this.edges = new ObjectIntMap<>();
+        this.sources = new ObjectIntMap<>();
     }
 
     public L getLabel() {
@@ -21,15 +25,51 @@ class Vertex<L> {
     }
 
     public int setEdge(L target, int weight) {
-        if (weight == 0) {
-            return edges.containsKey(target) ? edges.remove(target) : 0;
-        } else {
-            return edges.put(target, weight) == null ? 0 : edges.get(target);
-        }
+        return update(edges, target, weight);
+    }
+
+    public int addEdge(L target, int delta) {
+        return edges.add(target, delta);
+    }
+
+    public int setSource(L source, int weight) {
+        return update(sources, source, weight);
+    }
+
+    private static <L> int update(ObjectIntMap<L> map, L key, int weight) {
+        return weight <= 0 ? map.remove(key) : map.put(key, weight);
+    }
+
+    public int getWeight(L target) {
+        return edges.get(target);
+    }
+
+    public int getSourceWeight(L source) {
+        return sources.get(source);
+    }
+
+    public int outDegree() {
+        return edges.size();
+    }
+
+    public int inDegree() {
+        return sources.size();
+    }
+
+    public void forEachEdge(ObjIntConsumer<? super L> action) {
+        edges.forEach(action);
+    }
+
+    public void forEachSource(ObjIntConsumer<? super L> action) {
+        sources.forEach(action);
     }
 
     public Map<L, Integer> getEdges() {
-        return new HashMap<>(edges); // returns a defensive copy
+        return edges.toMap(); // returns a defensive copy
+    }
+
+    public Map<L, Integer> getSources() {
+        return sources.toMap(); // returns a defensive copy
     }
 
     @Override
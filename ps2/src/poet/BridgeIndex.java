@@ -0,0 +1,248 @@
+package poet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+/**
+ * A bounded cache of the best bridge word between two words of an affinity graph.
+ *
+ * <p>Entries are filled lazily, the first time a pair of words is looked up,
+ * and the least recently used pairs are evicted once the index is full, so
+ * the index keeps only the pairs that are actually in demand. Pairs with no
+ * bridge word are remembered as well. Safe for use by concurrent threads;
+ * large indexes are split into independently locked segments (see LruCache),
+ * so concurrent lookups rarely contend.
+ *
+ * <p>The graph may change, as a sequence of numbered versions. When an edge
+ * w1 -> w2 changes, only the pairs whose first word is w1 or whose second
+ * word is w2 can have a different bridge word. changed() records, in
+ * constant time, the version in which w1 and w2 last changed; an entry
+ * computed from an earlier version is dropped when it is next looked up.
+ * forget() marks a word that has left the graph; the index keeps the
+ * changes of the capacity() words forgotten most recently, and drops those
+ * of older ones, so it tracks only the words of the graph and a bounded
+ * number of others, however many have come and gone. A word that is not
+ * tracked counts as changed in the version in which the last word dropped
+ * was forgotten, so only entries computed before that are affected.
+ */
+class BridgeIndex {
+    private static final String NO_BRIDGE = new String("");
+
+    private final LruCache<Pair, Entry> bridges;
+    private final ConcurrentMap<String, Long> sourceChanges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> targetChanges = new ConcurrentHashMap<>();
+    private final Map<String, Long> forgottenWords = new LinkedHashMap<>();
+    private final AtomicLong forgotten = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Abstraction function:
+    //   Represents a partial map from pairs of words (word1, word2) and graph
+    //   versions to the best bridge word between them in that version, where
+    //   NO_BRIDGE stands for no bridge word. An entry of bridges computed from
+    //   version v answers for every version from lastChange(key) on, provided
+    //   lastChange(key) <= v, where a word missing from a change map last
+    //   changed in version forgotten. forgottenWords maps the words removed
+    //   from the graph, and not changed since, to the version in which they
+    //   were removed, oldest first. hits and misses count the lookups
+    //   answered by an entry and by computing.
+    // Representation invariant:
+    //   no key or value of bridges is null
+    //   forgottenWords.size() <= bridges.capacity()
+    // Safety from rep exposure:
+    //   all fields are private and final and never returned;
+    //   keys and values are immutable
+    // Thread safety argument:
+    //   bridges, the change maps, forgotten and the counters are thread-safe;
+    //   forgottenWords is guarded by its own lock, and only changed() and
+    //   forget() use it.
+    //   A change is recorded with a version that is not yet published, and
+    //   before it is published, so a lookup for a published version sees
+    //   every change up to that version, and no change it misses can affect
+    //   an entry of a version up to the current one. An entry is only stored
+    //   if no change later than its version was seen before the computation
+    //   began, and a change recorded after that makes it stale at its next
+    //   lookup. Dropping a forgotten word raises forgotten to the version it
+    //   was removed in before removing its changes, and lastChange() reads
+    //   forgotten after the change maps, so a lookup that misses a removed
+    //   change sees a version at least as late.
+
+    /**
+     * Make an empty index.
+     *
+     * @param capacity maximum number of word pairs to remember, at least 1
+     */
+    public BridgeIndex(final int capacity) {
+        this.bridges = new LruCache<>(capacity);
+    }
+
+    /**
+     * @return maximum number of word pairs this index remembers
+     */
+    public int capacity() {
+        return bridges.capacity();
+    }
+
+    /**
+     * Look up the bridge word between two words.
+     *
+     * @param word1 first word
+     * @param word2 second word
+     * @param version number of the graph version to answer for
+     * @param compute function computing the bridge word between two words in
+     *                that version, or null if there is none; called only if
+     *                the pair is not indexed for that version
+     * @return the bridge word between word1 and word2, or null if there is none
+     */
+    public String bridge(String word1, String word2, long version, BinaryOperator<String> compute) {
+        Pair key = new Pair(word1, word2);
+        long lastChange = lastChange(key);
+        Entry entry = bridges.get(key);
+        if (entry != null) {
+            if (lastChange <= Math.min(entry.version, version)) {
+                hits.increment();
+                return entry.bridge == NO_BRIDGE ? null : entry.bridge;
+            }
+            if (lastChange > entry.version) {
+                bridges.remove(key, entry); // stale for every version from now on
+            }
+        }
+        misses.increment();
+        String bridge = compute.apply(word1, word2);
+        if (lastChange <= version) {
+            bridges.merge(key, new Entry(bridge == null ? NO_BRIDGE : bridge, version),
+                    (existing, computed) -> existing.version < computed.version ? computed : existing);
+        }
+        return bridge;
+    }
+
+    /**
+     * Record that the edge source -> target has been added, removed or
+     * reweighted, so that the pairs whose bridge word may depend on it are
+     * computed again when next looked up.
+     *
+     * @param source source of the changed edge
+     * @param target target of the changed edge
+     * @param version number of the first graph version with the change; may
+     *                be recorded before that version is published
+     */
+    public void changed(String source, String target, long version) {
+        synchronized (forgottenWords) {
+            sourceChanges.merge(source, version, Math::max);
+            targetChanges.merge(target, version, Math::max);
+            if (!forgottenWords.isEmpty()) {
+                // Back in the graph, so no longer dropped as forgotten
+                forgottenWords.remove(source);
+                forgottenWords.remove(target);
+            }
+        }
+    }
+
+    /**
+     * Record that a word has been removed from the graph, so that its changes
+     * need only be tracked until capacity() more words are forgotten. When
+     * the changes of a forgotten word are dropped, entries computed before
+     * it was removed, for a pair with a word that is not tracked, are
+     * computed again when next looked up.
+     *
+     * @param word word removed from the graph
+     * @param version number of the first graph version without word, and at
+     *                least the version of every change of word recorded so
+     *                far; may be recorded before that version is published
+     */
+    public void forget(String word, long version) {
+        synchronized (forgottenWords) {
+            forgottenWords.remove(word);
+            forgottenWords.put(word, version);
+            Iterator<Map.Entry<String, Long>> oldest = forgottenWords.entrySet().iterator();
+            while (forgottenWords.size() > bridges.capacity()) {
+                Map.Entry<String, Long> dropped = oldest.next();
+                forgotten.accumulateAndGet(dropped.getValue(), Math::max);
+                sourceChanges.remove(dropped.getKey());
+                targetChanges.remove(dropped.getKey());
+                oldest.remove();
+            }
+        }
+    }
+
+    private long lastChange(Pair key) {
+        Long source = sourceChanges.get(key.first);
+        Long target = targetChanges.get(key.second);
+        long floor = forgotten.get();
+        return Math.max(source == null ? floor : source, target == null ? floor : target);
+    }
+
+    /*
+     * Count the change stamps held, one per word tracked as the source of a
+     * changed edge and one per word tracked as its target; for testing.
+     */
+    int trackedWords() {
+        return sourceChanges.size() + targetChanges.size();
+    }
+
+    /**
+     * @return number of word pairs currently indexed
+     */
+    public int size() {
+        return bridges.size();
+    }
+
+    /**
+     * @return number of lookups answered from the index
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that called their compute function
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * An immutable bridge word, and the version of the graph it was computed from.
+     */
+    private static final class Entry {
+        private final String bridge;
+        private final long version;
+
+        Entry(String bridge, long version) {
+            this.bridge = bridge;
+            this.version = version;
+        }
+    }
+
+    /**
+     * An immutable ordered pair of words.
+     */
+    private static final class Pair {
+        private final String first;
+        private final String second;
+
+        Pair(String first, String second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Pair)) return false;
+            Pair that = (Pair) o;
+            return first.equals(that.first) && second.equals(that.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * first.hashCode() + second.hashCode();
+        }
+    }
+}
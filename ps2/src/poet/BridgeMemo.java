@@ -0,0 +1,86 @@
+package poet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+/**
+ * Remembers the bridge words found while generating one batch of poems from
+ * one version of an affinity graph, so that a pair of words shared by many
+ * inputs is searched for only once.
+ *
+ * <p>Unlike BridgeIndex, a memo never evicts or invalidates anything: it
+ * lives only as long as its batch, and stops remembering new pairs once it
+ * holds about capacity of them. Lookups of remembered pairs take no locks
+ * and allocate nothing. Safe for use by concurrent threads.
+ */
+class BridgeMemo {
+    private static final String NO_BRIDGE = new String("");
+
+    private final BinaryOperator<String> compute;
+    private final int capacity;
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> bridges = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Abstraction function:
+    //   Represents the partial map from (word1, word2) to
+    //   bridges.get(word1).get(word2), where NO_BRIDGE stands for no bridge word,
+    //   together with the function that computes missing entries.
+    // Representation invariant:
+    //   size is at least the number of pairs in bridges, and at most capacity
+    //   more than it; every value is compute's (non-null) result for its pair
+    // Safety from rep exposure:
+    //   all fields are private and final, maps are never returned,
+    //   and keys and values are immutable Strings
+    // Thread safety argument:
+    //   bridges and its inner maps are concurrent maps, and size is atomic;
+    //   two threads may both compute a missing pair, but compute is a function
+    //   of the pair, so whichever result is kept is the same
+
+    /**
+     * Make an empty memo.
+     *
+     * @param capacity approximate maximum number of word pairs to remember
+     * @param compute function computing the bridge word between two words, or
+     *                null if there is none; must be safe to call concurrently
+     */
+    public BridgeMemo(int capacity, BinaryOperator<String> compute) {
+        this.capacity = capacity;
+        this.compute = compute;
+    }
+
+    /**
+     * Look up the bridge word between two words.
+     *
+     * @param word1 first word
+     * @param word2 second word
+     * @return the bridge word between word1 and word2, or null if there is none
+     */
+    public String bridge(String word1, String word2) {
+        ConcurrentMap<String, String> targets = bridges.get(word1);
+        String bridge = targets == null ? null : targets.get(word2);
+        if (bridge == null) {
+            bridge = compute.apply(word1, word2);
+            if (bridge == null) {
+                bridge = NO_BRIDGE;
+            }
+            if (size.get() < capacity) {
+                if (targets == null) {
+                    targets = bridges.computeIfAbsent(word1, k -> new ConcurrentHashMap<>());
+                }
+                if (targets.putIfAbsent(word2, bridge) == null) {
+                    size.incrementAndGet();
+                }
+            }
+        }
+        return bridge == NO_BRIDGE ? null : bridge;
+    }
+
+    /**
+     * @return number of word pairs remembered
+     */
+    public int size() {
+        return size.get();
+    }
+}
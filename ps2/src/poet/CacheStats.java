@@ -0,0 +1,86 @@
+package poet;
+
+import java.util.Locale;
+
+/**
+ * An immutable snapshot of the hit and miss counts of a GraphPoet's caches:
+ * its bridge index, of bridge words between pairs of words, and its poem
+ * cache, of whole poems. A poet without one of the caches reports zeros for it.
+ */
+public final class CacheStats {
+    private final long bridgeHits;
+    private final long bridgeMisses;
+    private final int bridgeSize;
+    private final long poemHits;
+    private final long poemMisses;
+    private final int poemSize;
+
+    // Abstraction function:
+    //   Represents the counts bridgeHits, bridgeMisses, poemHits, poemMisses
+    //   and the sizes bridgeSize, poemSize of a poet's caches at one moment
+    // Representation invariant:
+    //   every field is non-negative
+    // Safety from rep exposure:
+    //   all fields are private, final and immutable
+
+    CacheStats(long bridgeHits, long bridgeMisses, int bridgeSize, long poemHits, long poemMisses, int poemSize) {
+        this.bridgeHits = bridgeHits;
+        this.bridgeMisses = bridgeMisses;
+        this.bridgeSize = bridgeSize;
+        this.poemHits = poemHits;
+        this.poemMisses = poemMisses;
+        this.poemSize = poemSize;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert bridgeHits >= 0 && bridgeMisses >= 0 && bridgeSize >= 0 : "bridge counts must be non-negative";
+        assert poemHits >= 0 && poemMisses >= 0 && poemSize >= 0 : "poem counts must be non-negative";
+    }
+
+    /** @return number of bridge lookups answered from the bridge index */
+    public long bridgeHits() { return bridgeHits; }
+
+    /** @return number of bridge lookups the bridge index had to compute */
+    public long bridgeMisses() { return bridgeMisses; }
+
+    /** @return number of word pairs in the bridge index */
+    public int bridgeSize() { return bridgeSize; }
+
+    /** @return number of poems answered from the poem cache */
+    public long poemHits() { return poemHits; }
+
+    /** @return number of poems the poem cache had to compute */
+    public long poemMisses() { return poemMisses; }
+
+    /** @return number of poems in the poem cache */
+    public int poemSize() { return poemSize; }
+
+    /**
+     * @return fraction of bridge lookups answered from the bridge index, or 0
+     *         if there were none
+     */
+    public double bridgeHitRate() {
+        return rate(bridgeHits, bridgeMisses);
+    }
+
+    /**
+     * @return fraction of poems answered from the poem cache, or 0 if there
+     *         were none
+     */
+    public double poemHitRate() {
+        return rate(poemHits, poemMisses);
+    }
+
+    private static double rate(long hits, long misses) {
+        return hits + misses == 0 ? 0 : hits / (double) (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "bridges: %d hits, %d misses (%.1f%%), %d cached; poems: %d hits, %d misses (%.1f%%), %d cached",
+                bridgeHits, bridgeMisses, 100 * bridgeHitRate(), bridgeSize,
+                poemHits, poemMisses, 100 * poemHitRate(), poemSize);
+    }
+}
@@ -1,23 +1,86 @@
 package poet;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.StringTokenizer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
 
+import graph.FrozenGraph;
 import graph.Graph;
+import graph.InstrumentedGraph;
+import graph.VersionedGraph;
 
 public class GraphPoet {
 
-    private final Graph<String> graph = Graph.empty();
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_TASK_SIZE = 256;
+    private static final int BATCH_MEMO_CAPACITY = 1 << 20;
+    private static final int FILE_BLOCK_LINES = 1 << 14;
+    private static final int MAX_SCRATCH_SIZE = 1 << 16;
+    private static final int STREAM_FLUSH_SIZE = 1 << 13;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Object updateLock = new Object();
+    private volatile Graph<String> graph;
+    private VersionedGraph<String> versions;
+    private String lastWord;
+    private final WordTable words;
+    private final BridgeIndex bridgeIndex;
+    private final PoemCache poemCache;
+    private final PoetMetrics metrics;
+    private final PairWindow window;
 
     // Abstraction function:
-    //   Represents a word affinity graph derived from the corpus
+    //   Represents a word affinity graph derived from the corpus, whose last
+    //   word (lowercase) is lastWord, or unknown if lastWord is null
     // Representation invariant:
     //   Graph must not contain null vertices or edges
+    //   graph is immutable: frozen, snapshot-backed, or a version of versions
+    //   versions, once made, has graph as its current version
+    //   words, if not null, contains every vertex of graph
+    //   bridgeIndex, if not null, only holds results of computeBridgeWord on
+    //   versions of graph, stamped with their version numbers
+    //   poemCache, if not null, only holds poems of versions of graph,
+    //   stamped with their version numbers
+    //   metrics, if not null, reads this poet's graph
+    //   window, if not null, holds the word pairs added since windowing began,
+    //   oldest first, at most window.capacity() of them once an update ends;
+    //   each pair counts one unit of weight of its edge in graph
     // Safety from rep exposure:
-    //   graph is private and final, no direct access provided
+    //   all fields are private, no direct access provided
+    //   graph may be shared with other poets, but it is immutable
+    // Thread safety argument:
+    //   poem() reads graph once, and then only reads that immutable graph, so it
+    //   never blocks and always sees one consistent version
+    //   versions, lastWord and window are only accessed, and words only added
+    //   to, while holding updateLock, which serializes updates; graph is volatile
+    //   and is written only after the version it refers to is published
+    //   WordTable lookups are safe concurrently with one writer, and
+    //   bridgeIndex, poemCache and metrics are thread-safe
 
     /**
      * Create a new poet with the graph from corpus (as described above).
@@ -26,30 +89,483 @@ public class GraphPoet {
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        List<String> lines = Files.readAllLines(corpus.toPath());
-        StringBuilder content = new StringBuilder();
+        this(corpus.toPath());
+    }
 
-        // Combine all lines into a single string
-        for (String line : lines) {
-            content.append(line).append(" ");
+    /**
+     * Create a new poet with the graph from corpus (as described above).
+     * The corpus is read incrementally and decoded as UTF-8, so memory use is
+     * bounded by the size of the affinity graph rather than of the corpus.
+     * 
+     * @param corpus path of the text file from which to derive the poet's affinity graph
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(Path corpus) throws IOException {
+        this.words = new WordTable();
+        this.bridgeIndex = null;
+        this.poemCache = null;
+        this.metrics = null;
+        this.window = null;
+        Graph<String> graph = Graph.empty();
+        try (Reader reader = open(corpus)) {
+            this.lastWord = addWords(reader, words, graph, null);
         }
+        this.graph = FrozenGraph.freeze(graph);
+    }
 
-        // Tokenize the content into words
-        StringTokenizer tokenizer = new StringTokenizer(content.toString());
-        String prevWord = null;
+    /**
+     * Create a new poet with the graph from corpus (as described above).
+     * The corpus is read incrementally; the caller remains responsible for closing it.
+     * 
+     * @param corpus stream of UTF-8 text from which to derive the poet's affinity graph
+     * @throws IOException if the corpus cannot be read
+     */
+    public GraphPoet(InputStream corpus) throws IOException {
+        this(new InputStreamReader(corpus, StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    /**
+     * Create a new poet with the graph from corpus (as described above).
+     * The corpus is read incrementally; the caller remains responsible for closing it.
+     * 
+     * @param corpus text from which to derive the poet's affinity graph
+     * @throws IOException if the corpus cannot be read
+     */
+    public GraphPoet(Reader corpus) throws IOException {
+        this.words = new WordTable();
+        this.bridgeIndex = null;
+        this.poemCache = null;
+        this.metrics = null;
+        this.window = null;
+        Graph<String> graph = Graph.empty();
+        this.lastWord = addWords(corpus, words, graph, null);
+        this.graph = FrozenGraph.freeze(graph);
+    }
+
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * reading the corpus with every thread of the common fork-join pool.
+     * 
+     * @param corpus path of the text file from which to derive the poet's affinity graph
+     * @return a poet with the same affinity graph as new GraphPoet(corpus)
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet parallel(Path corpus) throws IOException {
+        return parallel(corpus, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * splitting the corpus into chunks that are read concurrently in pool.
+     * 
+     * @param corpus path of the text file from which to derive the poet's affinity graph
+     * @param pool pool in which to read the corpus
+     * @return a poet with the same affinity graph as new GraphPoet(corpus)
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet parallel(Path corpus, ForkJoinPool pool) throws IOException {
+        ParallelIngest.Counts counts = ParallelIngest.count(corpus, pool);
+        Graph<String> graph = FrozenGraph.freeze(counts.toGraph());
+        WordTable words = new WordTable();
+        for (String word : graph.vertices()) {
+            words.intern(word);
+        }
+        return new GraphPoet(graph, words, counts.last());
+    }
+
+    /**
+     * Open a poet saved by save(). Only the header of the file is read; the
+     * affinity graph is memory-mapped and read lazily as poems are generated.
+     * 
+     * @param snapshot file written by save()
+     * @return a poet with the same affinity graph as the poet that was saved
+     * @throws IOException if the file cannot be read, or is not a complete
+     *         snapshot of a supported version
+     */
+    public static GraphPoet load(Path snapshot) throws IOException {
+        return load(snapshot, false);
+    }
+
+    /**
+     * Open a poet saved by save(). The affinity graph is memory-mapped and
+     * read lazily as poems are generated.
+     * 
+     * <p>A snapshot does not record the last word of the corpus, so text added
+     * to the loaded poet is treated as the start of a new document: no pair
+     * spans the boundary between the saved corpus and the added text.
+     * 
+     * @param snapshot file written by save()
+     * @param verify whether to check the snapshot's checksum first, which
+     *               reads the whole file
+     * @return a poet with the same affinity graph as the poet that was saved
+     * @throws IOException if the file cannot be read, is not a complete
+     *         snapshot of a supported version, or (if verified) is corrupt
+     */
+    public static GraphPoet load(Path snapshot, boolean verify) throws IOException {
+        // No word table: filling it would decode every label of the snapshot up front
+        return new GraphPoet(SnapshotGraph.open(snapshot, verify), null, null);
+    }
+
+    /*
+     * graph must be immutable.
+     */
+    private GraphPoet(Graph<String> graph, WordTable words, String lastWord) {
+        this.graph = graph;
+        this.lastWord = lastWord;
+        this.words = words;
+        this.bridgeIndex = null;
+        this.poemCache = null;
+        this.metrics = null;
+        this.window = null;
+    }
+
+    /*
+     * A poet with poet's graph, new caches of the given capacities, none if 0,
+     * new metrics if metered, and a copy of poet's window resized to
+     * windowCapacity, none if 0.
+     */
+    private GraphPoet(GraphPoet poet, int bridgeCapacity, int poemCapacity, boolean metered,
+            int windowCapacity) {
+        synchronized (poet.updateLock) {
+            // Immutable, so the two poets can share it; each makes its own versions of it
+            this.graph = poet.graph;
+            this.lastWord = poet.lastWord;
+            // A word table only grows, so a windowed poet, whose vocabulary
+            // keeps changing, does without one
+            this.words = poet.words == null || windowCapacity > 0 ? null : new WordTable(poet.words);
+            if (windowCapacity == 0) {
+                this.window = null;
+            } else if (poet.window == null) {
+                this.window = new PairWindow(windowCapacity);
+            } else {
+                this.window = new PairWindow(poet.window, windowCapacity);
+            }
+        }
+        this.bridgeIndex = bridgeCapacity == 0 ? null : new BridgeIndex(bridgeCapacity);
+        this.poemCache = poemCapacity == 0 ? null : new PoemCache(poemCapacity);
+        this.metrics = metered ? new PoetMetrics(() -> this.graph) : null;
+    }
+
+    /**
+     * Make a poet with the same affinity graph as this one that remembers the
+     * bridge words it finds. The best bridge word for a pair of words is
+     * computed once and then answered in constant time until the pair is
+     * evicted in favor of more recently used pairs, or until text added to
+     * the poet changes the edges that the answer depends on.
+     * 
+     * <p>The two poets are independent afterwards: text added to one is not
+     * seen by the other. If this poet has a poem cache or metrics, so does
+     * the new one, empty.
+     * 
+     * @param capacity maximum number of word pairs to remember, at least 1
+     * @return a poet whose poem() results are the same as this poet's
+     */
+    public GraphPoet withBridgeIndex(int capacity) {
+        checkCapacity(capacity);
+        return new GraphPoet(this, capacity, poemCapacity(), metrics != null, windowCapacity());
+    }
+
+    /**
+     * Make a poet with the same affinity graph as this one that remembers the
+     * poems it generates, for inputs of up to 4096 chars. The poem of an
+     * input is generated once and then answered in constant time until the
+     * input is evicted in favor of more recently used inputs, or until text
+     * is added to the poet. Worthwhile when the same inputs recur; pair it
+     * with withBridgeIndex() when inputs differ but their word pairs recur.
+     * 
+     * <p>The two poets are independent afterwards: text added to one is not
+     * seen by the other. If this poet has a bridge index or metrics, so does
+     * the new one, empty.
+     * 
+     * @param capacity maximum number of poems to remember, at least 1
+     * @return a poet whose poem() results are the same as this poet's
+     */
+    public GraphPoet withPoemCache(int capacity) {
+        checkCapacity(capacity);
+        return new GraphPoet(this, bridgeCapacity(), capacity, metrics != null, windowCapacity());
+    }
 
-        while (tokenizer.hasMoreTokens()) {
-            String currentWord = tokenizer.nextToken().toLowerCase();
+    private static void checkCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+    }
+
+    private int bridgeCapacity() {
+        return bridgeIndex == null ? 0 : bridgeIndex.capacity();
+    }
+
+    private int poemCapacity() {
+        return poemCache == null ? 0 : poemCache.capacity();
+    }
+
+    private int windowCapacity() {
+        return window == null ? 0 : window.capacity();
+    }
+
+    /**
+     * Make a poet with the same affinity graph as this one that only
+     * remembers the most recent text added to it. Each word pair added from
+     * now on counts towards its edge until pairs more recent than it have
+     * been added; then its count is subtracted again, edges whose weight
+     * falls to zero are removed, and so are the vertices they leave with no
+     * edges. The text already in this poet is kept for good, so a poet
+     * made from an empty corpus holds at most pairs edges and pairs + 1
+     * vertices, however much text is added to it, and each update costs time
+     * in proportion to the text it adds. Earlier versions of the graph are
+     * reclaimed once no poem is being written from them, so the memory the
+     * poet uses is bounded as well; a bridge index adds at most its capacity
+     * in words that have left the window.
+     * 
+     * <p>The two poets are independent afterwards: text added to one is not
+     * seen by the other. If this poet is windowed, the new one starts with
+     * the same pairs, of which the oldest are dropped by the next update if
+     * there are more than pairs of them. If this poet has a bridge index,
+     * poem cache or metrics, so does the new one, empty. A windowed poet
+     * does not intern the words it reads, since its vocabulary keeps changing.
+     * 
+     * @param pairs number of most recent word pairs to remember, at least 1
+     * @return a poet whose poem() results are the same as this poet's, until
+     *         text is added
+     */
+    public GraphPoet withWindow(int pairs) {
+        checkCapacity(pairs);
+        return new GraphPoet(this, bridgeCapacity(), poemCapacity(), metrics != null, pairs);
+    }
+
+    /**
+     * @return the hit and miss counts of this poet's bridge index and poem
+     *         cache so far
+     */
+    public CacheStats cacheStats() {
+        return new CacheStats(
+                bridgeIndex == null ? 0 : bridgeIndex.hits(),
+                bridgeIndex == null ? 0 : bridgeIndex.misses(),
+                bridgeIndex == null ? 0 : bridgeIndex.size(),
+                poemCache == null ? 0 : poemCache.hits(),
+                poemCache == null ? 0 : poemCache.misses(),
+                poemCache == null ? 0 : poemCache.size());
+    }
+
+    /*
+     * The current version of this poet's affinity graph; for testing.
+     */
+    Graph<String> currentGraph() {
+        return graph;
+    }
+
+    /*
+     * Count the change stamps held by this poet's bridge index, or 0 if it has
+     * none; for testing.
+     */
+    int bridgeIndexTrackedWords() {
+        return bridgeIndex == null ? 0 : bridgeIndex.trackedWords();
+    }
+
+    /**
+     * Make a poet with the same affinity graph as this one that records
+     * metrics of what it does: see PoetMetrics. Poets without metrics do not
+     * pay for them. To measure ingestion of a whole corpus, start from a poet
+     * of an empty corpus and add the corpus with addCorpus().
+     * 
+     * <p>The two poets are independent afterwards: text added to one is not
+     * seen by the other. If this poet has a bridge index or poem cache, so
+     * does the new one, of the same capacity and empty.
+     * 
+     * @return a poet whose poem() results are the same as this poet's, and
+     *         whose metrics() are present
+     */
+    public GraphPoet withMetrics() {
+        return new GraphPoet(this, bridgeCapacity(), poemCapacity(), true, windowCapacity());
+    }
+
+    /**
+     * @return the metrics of this poet, if it was made by withMetrics() or
+     *         from a poet with metrics
+     */
+    public Optional<PoetMetrics> metrics() {
+        return Optional.ofNullable(metrics);
+    }
+
+    /*
+     * graph, instrumented if this poet has metrics.
+     */
+    private Graph<String> view(Graph<String> graph) {
+        return metrics == null ? graph : new InstrumentedGraph<>(graph, metrics.graphMetrics());
+    }
+
+    /**
+     * Add the text of a file to the end of this poet's corpus, as if the file
+     * had been appended to the corpus after a line break. Costs time in
+     * proportion to the length of the file, except that the first update of a
+     * poet copies its compact read-only graph into a versioned one.
+     * 
+     * <p>The added text is published atomically: poem() never waits for an
+     * update, and sees either none or all of the text added by it. Among
+     * bridge words of equal weight, the one chosen may differ from the one a
+     * poet built from the whole corpus at once would choose.
+     * 
+     * @param corpus path of a UTF-8 text file to add
+     * @throws IOException if the file cannot be found or read, in which case
+     *         none of it is added
+     */
+    public void addCorpus(Path corpus) throws IOException {
+        long size = metrics == null ? 0 : Files.size(corpus);
+        try (Reader reader = open(corpus)) {
+            add(new WordScanner(reader), size);
+        }
+    }
+
+    /**
+     * Add text to the end of this poet's corpus, as if it had been appended
+     * to the corpus after a line break. Costs time in proportion to the
+     * length of text, except as described for addCorpus().
+     * 
+     * @param text text to add
+     */
+    public void addText(CharSequence text) {
+        try {
+            add(new WordScanner(text), text.length());
+        } catch (IOException e) {
+            throw new AssertionError("scanning a string does no I/O", e);
+        }
+    }
+
+    /*
+     * Add the words of text, whose size is recorded in metrics (if any).
+     */
+    private void add(WordScanner text, long size) throws IOException {
+        synchronized (updateLock) {
+            long start = System.nanoTime();
+            if (versions == null) {
+                versions = new VersionedGraph<>(graph, 1);
+            }
+            long next = versions.current().number() + 1;
+            String[] last = {lastWord};
+            if (window != null) {
+                window.begin();
+            }
+            boolean added = false;
+            try {
+                graph = versions.update(draft -> {
+                    try {
+                        last[0] = addWords(text, words, view(draft), last[0], bridgeIndex, next, window);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                added = true;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                if (window != null) {
+                    // The draft graph is discarded if the update failed, so
+                    // the window must forget its changes too
+                    if (added) {
+                        window.commit();
+                    } else {
+                        window.rollback();
+                    }
+                }
+            }
+            lastWord = last[0];
+            if (metrics != null) {
+                metrics.ingested(size, text.wordCount(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static long versionOf(Graph<String> graph) {
+        if (graph instanceof InstrumentedGraph) {
+            return versionOf(((InstrumentedGraph<String>) graph).delegate());
+        }
+        return graph instanceof VersionedGraph.Version
+                ? ((VersionedGraph.Version<String>) graph).number() : 0;
+    }
+
+    /**
+     * Save this poet's affinity graph to a compact binary snapshot, which
+     * load() can reopen without reading the corpus again.
+     * 
+     * @param snapshot destination file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path snapshot) throws IOException {
+        SnapshotGraph.write(graph, snapshot);
+    }
+
+    private static Reader open(Path corpus) throws IOException {
+        FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ);
+        return Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), READ_BUFFER_SIZE);
+    }
+
+    static Graph<String> read(Reader corpus) throws IOException {
+        Graph<String> graph = Graph.empty();
+        addWords(corpus, new WordTable(), graph, null);
+        return graph;
+    }
+
+    private static String addWords(Reader corpus, WordTable words, Graph<String> graph,
+            String prevWord) throws IOException {
+        return addWords(new WordScanner(corpus), words, graph, prevWord, null, 0, null);
+    }
+
+    /*
+     * Add the word pairs of text to graph, counting the pair of prevWord (if
+     * not null) and the first word of text, and report each changed edge to
+     * bridgeIndex (if not null) as changing in the given version. Every occurrence of a word is mapped to its
+     * one instance in words (if not null), so only the first occurrence of each
+     * word allocates a String. If window is not null, each pair is added to
+     * it, and the pairs it overflows with are subtracted from graph. Returns
+     * the last word read, or prevWord if text has no words.
+     */
+    private static String addWords(WordScanner text, WordTable words, Graph<String> graph,
+            String prevWord, BridgeIndex bridgeIndex, long version, PairWindow window) throws IOException {
+        while (text.advance()) {
+            String currentWord = text.lowerCaseWord(words, true);
 
             if (prevWord != null) {
-                // Add vertices and edge
-                graph.add(prevWord);
-                graph.add(currentWord);
-                int weight = graph.set(prevWord, currentWord, graph.targets(prevWord).getOrDefault(currentWord, 0) + 1);
+                // Add vertices and edge, or count one more occurrence of it
+                graph.increment(prevWord, currentWord, 1);
+                if (bridgeIndex != null) {
+                    bridgeIndex.changed(prevWord, currentWord, version);
+                }
+                if (window != null) {
+                    window.add(prevWord, currentWord);
+                    while (window.size() > window.capacity()) {
+                        expire(graph, window.oldestSource(), window.oldestTarget(), bridgeIndex, version);
+                        window.removeOldest();
+                    }
+                }
             }
 
             prevWord = currentWord;
         }
+        return prevWord;
+    }
+
+    /*
+     * Subtract one occurrence of the pair source, target from graph, removing
+     * its edge if that was the last, and either word if that leaves it with
+     * no edges, in which case bridgeIndex (if not null) forgets it.
+     */
+    private static void expire(Graph<String> graph, String source, String target,
+            BridgeIndex bridgeIndex, long version) {
+        if (bridgeIndex != null) {
+            bridgeIndex.changed(source, target, version);
+        }
+        if (graph.increment(source, target, -1) == 0) {
+            removeIfIsolated(graph, source, bridgeIndex, version);
+            removeIfIsolated(graph, target, bridgeIndex, version);
+        }
+    }
+
+    private static void removeIfIsolated(Graph<String> graph, String word, BridgeIndex bridgeIndex,
+            long version) {
+        if (graph.outDegree(word) == 0 && graph.inDegree(word) == 0 && graph.remove(word)
+                && bridgeIndex != null) {
+            bridgeIndex.forget(word, version);
+        }
     }
 
     /**
@@ -59,44 +575,359 @@ public class GraphPoet {
      * @return poem (as described above)
      */
     public String poem(String input) {
-        StringTokenizer tokenizer = new StringTokenizer(input);
-        StringBuilder poem = new StringBuilder();
+        // One immutable version for the whole poem, however the poet is updated meanwhile
+        Graph<String> graph = view(this.graph);
+        if (poemCache == null) {
+            return poem(graph, input);
+        }
+        return poemCache.poem(input, versionOf(graph), text -> poem(graph, text));
+    }
+
+    private String poem(Graph<String> graph, String input) {
+        return poem(graph, new WordScanner(input), new StringBuilder(input.length() + 16), null);
+    }
+
+    /**
+     * Generate a poem from each of a list of inputs, using every thread of the
+     * common fork-join pool.
+     * 
+     * @param inputs strings from which to create poems
+     * @return the poems, in the same order as inputs; each is the poem that
+     *         poem() would return for its input
+     */
+    public List<String> poems(List<String> inputs) {
+        return poems(inputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate a poem from each of a list of inputs, in tasks run by executor.
+     * All the poems are generated from the same version of the affinity graph,
+     * and each pair of adjacent words shared by several inputs is bridged only once.
+     * 
+     * @param inputs strings from which to create poems
+     * @param executor executor to run the work in
+     * @return the poems, in the same order as inputs; each is the poem that
+     *         poem() would return for its input
+     */
+    public List<String> poems(List<String> inputs, Executor executor) {
+        return poems(new Batch(), inputs, executor);
+    }
+
+    /**
+     * Generate a poem from each element of a stream of inputs. The result is
+     * lazy, and is parallel if inputs is. All the poems are generated from the
+     * same version of the affinity graph, and each pair of adjacent words
+     * shared by several inputs is bridged only once.
+     * 
+     * @param inputs strings from which to create poems
+     * @return stream of the poems, in the same order as inputs; each is the
+     *         poem that poem() would return for its input
+     */
+    public Stream<String> poems(Stream<String> inputs) {
+        return inputs.map(new Batch()::poem);
+    }
+
+    /**
+     * Generate a poem from each line of a file, using every thread of the
+     * common fork-join pool.
+     * 
+     * @param inputs path of a UTF-8 text file with one input per line
+     * @param outputs path of the UTF-8 text file to write, replaced if it
+     *                exists, with the poem of each line of inputs on the
+     *                corresponding line
+     * @throws IOException if inputs cannot be read or outputs cannot be written
+     */
+    public void poems(Path inputs, Path outputs) throws IOException {
+        poems(inputs, outputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate a poem from each line of a file, in tasks run by executor.
+     * The file is processed in blocks of lines, so memory use does not depend
+     * on its length. Poems are generated as by poems(List, Executor).
+     * 
+     * @param inputs path of a UTF-8 text file with one input per line
+     * @param outputs path of the UTF-8 text file to write, replaced if it
+     *                exists, with the poem of each line of inputs on the
+     *                corresponding line
+     * @param executor executor to run the work in
+     * @throws IOException if inputs cannot be read or outputs cannot be written
+     */
+    public void poems(Path inputs, Path outputs, Executor executor) throws IOException {
+        Batch batch = new Batch();
+        try (BufferedReader reader = Files.newBufferedReader(inputs, StandardCharsets.UTF_8);
+                BufferedWriter writer = Files.newBufferedWriter(outputs, StandardCharsets.UTF_8)) {
+            List<String> block = new ArrayList<>(FILE_BLOCK_LINES);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                block.add(line);
+                if (block.size() == FILE_BLOCK_LINES) {
+                    write(poems(batch, block, executor), writer);
+                    block.clear();
+                }
+            }
+            write(poems(batch, block, executor), writer);
+        }
+    }
+
+    private static void write(List<String> poems, BufferedWriter writer) throws IOException {
+        for (String poem : poems) {
+            writer.write(poem);
+            writer.newLine();
+        }
+    }
 
+    private static List<String> poems(Batch batch, List<String> inputs, Executor executor) {
+        String[] poems = new String[inputs.size()];
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < poems.length; from += BATCH_TASK_SIZE) {
+            int start = from;
+            int end = Math.min(poems.length, from + BATCH_TASK_SIZE);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; i++) {
+                    poems[i] = batch.poem(inputs.get(i));
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return Collections.unmodifiableList(Arrays.asList(poems));
+    }
+
+    /**
+     * Per-thread buffers reused by successive poems of a batch.
+     */
+    private static final class Scratch {
+        final WordScanner scanner = new WordScanner("");
+        final StringBuilder poem = new StringBuilder();
+    }
+
+    /**
+     * One batch of poems: a fixed version of the affinity graph, and the
+     * bridge words found in it so far.
+     */
+    private final class Batch {
+        private final Graph<String> graph = view(GraphPoet.this.graph);
+        private final BridgeMemo memo = new BridgeMemo(BATCH_MEMO_CAPACITY,
+                (word1, word2) -> findBridgeWord(graph, word1, word2));
+
+        String poem(String input) {
+            return poemCache == null ? generate(input) : poemCache.poem(input, versionOf(graph), this::generate);
+        }
+
+        private String generate(String input) {
+            Scratch scratch = SCRATCH.get();
+            scratch.scanner.reset(input);
+            scratch.poem.setLength(0);
+            String poem = GraphPoet.this.poem(graph, scratch.scanner, scratch.poem, memo);
+            if (scratch.scanner.bufferSize() > MAX_SCRATCH_SIZE || scratch.poem.capacity() > MAX_SCRATCH_SIZE) {
+                SCRATCH.remove(); // don't hold on to buffers sized for one huge input
+            }
+            return poem;
+        }
+    }
+
+    /**
+     * Generate a poem from a stream of text, writing it as it goes. Memory use
+     * does not depend on the length of input or of the poem.
+     * 
+     * @param input text from which to create the poem; it is read to the end,
+     *              and the caller remains responsible for closing it
+     * @param output destination of the poem, which is the same as poem() would
+     *               return for the whole of input; it is flushed but not closed
+     * @throws IOException if input cannot be read or output cannot be written
+     */
+    public void poem(Reader input, Writer output) throws IOException {
+        StreamOutput out = new StreamOutput(output);
+        StringBuilder poem = new StringBuilder(2 * STREAM_FLUSH_SIZE);
+        addPoem(view(graph), new WordScanner(input), poem, null, out);
+        out.finish(poem);
+    }
+
+    /**
+     * Generate a poem from a stream of UTF-8 text, writing it as UTF-8 as it
+     * goes. Memory use does not depend on the length of input or of the poem.
+     * 
+     * @param input text from which to create the poem; it is read to the end,
+     *              and the caller remains responsible for closing it
+     * @param output destination of the poem, which is the UTF-8 encoding of
+     *               what poem() would return for the whole of input; the
+     *               caller remains responsible for closing it
+     * @throws IOException if input cannot be read or is not valid UTF-8, or
+     *         output cannot be written
+     */
+    public void poem(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        poem(Channels.newReader(input, StandardCharsets.UTF_8.newDecoder(), READ_BUFFER_SIZE),
+                Channels.newWriter(output, StandardCharsets.UTF_8.newEncoder(), READ_BUFFER_SIZE));
+    }
+
+    /**
+     * Moves a poem from its buffer to a Writer in pieces, trimming it as
+     * String.trim() would trim the whole poem: leading chars up to ' ' are
+     * dropped, and each run of such chars is held back until a later char
+     * shows that it is not trailing.
+     */
+    private static final class StreamOutput {
+        private final Writer out;
+        private final char[] transfer = new char[STREAM_FLUSH_SIZE];
+        private boolean written = false;
+
+        StreamOutput(Writer out) {
+            this.out = out;
+        }
+
+        /*
+         * Write out the contents of poem that are known to be part of the
+         * trimmed poem, leaving only a (possibly empty) held-back run in poem.
+         */
+        void flush(StringBuilder poem) throws IOException {
+            int length = poem.length();
+            int start = 0;
+            if (!written) {
+                while (start < length && poem.charAt(start) <= ' ') {
+                    start++;
+                }
+            }
+            int end = length;
+            while (end > start && poem.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            for (int from = start; from < end; from += transfer.length) {
+                int to = Math.min(end, from + transfer.length);
+                poem.getChars(from, to, transfer, 0);
+                out.write(transfer, 0, to - from);
+                written = true;
+            }
+            poem.delete(0, end);
+        }
+
+        /*
+         * Write out the rest of the poem, dropping trailing chars up to ' '.
+         */
+        void finish(StringBuilder poem) throws IOException {
+            flush(poem);
+            out.flush();
+        }
+    }
+
+    /*
+     * Generate the poem of the words of scanner from graph, using poem as the
+     * (empty) buffer, and memo (if not null) to find bridge words.
+     */
+    private String poem(Graph<String> graph, WordScanner scanner, StringBuilder poem, BridgeMemo memo) {
+        try {
+            addPoem(graph, scanner, poem, memo, null);
+        } catch (IOException e) {
+            throw new AssertionError("scanning a string does no I/O", e);
+        }
+        return trim(poem);
+    }
+
+    /*
+     * Append the untrimmed poem of the words of scanner from graph to poem,
+     * using memo (if not null) to find bridge words. If out is not null, the
+     * poem is moved to it whenever poem grows past STREAM_FLUSH_SIZE.
+     */
+    private void addPoem(Graph<String> graph, WordScanner scanner, StringBuilder poem, BridgeMemo memo,
+            StreamOutput out) throws IOException {
+        // Lowercase form of the previous word, null if there is none or it is not in the corpus
         String prevWord = null;
 
-        while (tokenizer.hasMoreTokens()) {
-            String currentWord = tokenizer.nextToken();
-            if (prevWord != null) {
+        while (scanner.advance()) {
+            // A word missing from the table is not a vertex, so it cannot be bridged
+            String currentWord = scanner.lowerCaseWord(words, false);
+            if (prevWord != null && currentWord != null) {
                 // Find a bridge word
-                String bridgeWord = findBridgeWord(prevWord.toLowerCase(), currentWord.toLowerCase());
+                if (metrics != null) {
+                    metrics.bridgeLookup();
+                }
+                String bridgeWord = memo == null
+                        ? findBridgeWord(graph, prevWord, currentWord)
+                        : memo.bridge(prevWord, currentWord);
                 if (bridgeWord != null) {
                     poem.append(" ").append(bridgeWord);
                 }
             }
-            // Add current word
-            poem.append(" ").append(currentWord);
+            // Add current word, in its original case
+            poem.append(" ");
+            scanner.appendWord(poem);
             prevWord = currentWord;
+            if (out != null && poem.length() >= STREAM_FLUSH_SIZE) {
+                out.flush(poem);
+            }
         }
+    }
 
-        return poem.toString().trim();
+    /*
+     * Same as poem.toString().trim(), without the intermediate String.
+     */
+    private static String trim(StringBuilder poem) {
+        int start = 0;
+        int end = poem.length();
+        while (start < end && poem.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && poem.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return poem.substring(start, end);
     }
 
-    private String findBridgeWord(String word1, String word2) {
-        String bridge = null;
-        int maxWeight = 0;
+    private String findBridgeWord(Graph<String> graph, String word1, String word2) {
+        if (bridgeIndex == null) {
+            return searchBridgeWord(graph, word1, word2);
+        }
+        if (!graph.vertices().contains(word1) || !graph.vertices().contains(word2)) {
+            return null; // keep words outside the corpus out of the index
+        }
+        return bridgeIndex.bridge(word1, word2, versionOf(graph),
+                (w1, w2) -> searchBridgeWord(graph, w1, w2));
+    }
 
-        // Find all possible bridge words
-        for (String candidate : graph.targets(word1).keySet()) {
-            if (graph.targets(candidate).containsKey(word2)) {
-                int weight = graph.targets(word1).get(candidate) + graph.targets(candidate).get(word2);
-                if (weight > maxWeight) {
-                    maxWeight = weight;
-                    bridge = candidate;
-                }
-            }
+    /*
+     * computeBridgeWord(), counted as a bridge miss in metrics (if any).
+     */
+    private String searchBridgeWord(Graph<String> graph, String word1, String word2) {
+        if (metrics != null) {
+            metrics.bridgeMiss();
         }
+        return computeBridgeWord(graph, word1, word2);
+    }
+
+    private static String computeBridgeWord(Graph<String> graph, String word1, String word2) {
+        BridgeSearch search = new BridgeSearch(graph, word2);
+        graph.forEachTarget(word1, search);
+        return search.bridge;
+    }
 
-        return bridge;
+    /**
+     * Finds the candidate bridge word with the largest combined weight among
+     * the targets of a word; ties go to the first candidate visited.
+     */
+    private static final class BridgeSearch implements ObjIntConsumer<String> {
+        private final Graph<String> graph;
+        private final String word2;
+        private String bridge = null;
+        private int maxWeight = 0;
+
+        BridgeSearch(Graph<String> graph, String word2) {
+            this.graph = graph;
+            this.word2 = word2;
+        }
+
+        @Override
+        public void accept(String candidate, int firstWeight) {
+            int secondWeight = graph.weight(candidate, word2);
+            if (secondWeight > 0 && firstWeight + secondWeight > maxWeight) {
+                maxWeight = firstWeight + secondWeight;
+                bridge = candidate;
+            }
+        }
     }
 
     // Representation invariant check
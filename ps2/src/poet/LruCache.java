@@ -0,0 +1,141 @@
+package poet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * A size-bounded map that evicts its least recently used entries. Safe for
+ * use by concurrent threads.
+ *
+ * <p>A large cache is split by key hash into segments, each with its own
+ * lock and an equal share of the capacity, so that threads using different
+ * segments do not contend; eviction is then least recently used within a
+ * segment. A cache of capacity below 2 * MIN_SEGMENT_CAPACITY has a single
+ * segment and is exactly LRU.
+ */
+class LruCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 256;
+
+    private final int capacity;
+    private final Segment<K, V>[] segments;
+
+    // Abstraction function:
+    //   Represents the union of the maps segments[i], each ordered from least
+    //   to most recently used.
+    // Representation invariant:
+    //   segments.length is a power of two
+    //   a key k is only in segments[spread(k.hashCode()) & (segments.length - 1)]
+    //   the sum of the segments' capacities is capacity
+    // Safety from rep exposure:
+    //   all fields are private and final, and segments are never returned
+    // Thread safety argument:
+    //   every access to a segment is synchronized on that segment
+
+    /**
+     * Make an empty cache.
+     *
+     * @param capacity maximum number of entries, at least 1
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Spread the remainder, so the capacities add up to capacity
+            segments[i] = new Segment<>(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    private Segment<K, V> segment(Object key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * @return maximum number of entries
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Look up a key, making it the most recently used if present.
+     *
+     * @param key a key
+     * @return its value, or null if it is not cached
+     */
+    V get(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * Atomically combine the value of a key with a new one, as Map.merge()
+     * does, evicting the least recently used entry if the cache overflows.
+     *
+     * @param key a key
+     * @param value value to store if the key is not cached
+     * @param remapping given the cached and the new value, returns the value
+     *                  to keep, or null to remove the key; called while the
+     *                  key's segment is locked, so it must be quick
+     */
+    void merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.merge(key, value, remapping);
+        }
+    }
+
+    /**
+     * Remove a key if it still has a given value.
+     *
+     * @param key a key
+     * @param value the value it must have
+     */
+    void remove(K key, V value) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.remove(key, value);
+        }
+    }
+
+    /**
+     * @return number of entries cached
+     */
+    int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * One part of the cache: an access-ordered map of bounded size.
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
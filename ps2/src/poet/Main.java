@@ -5,6 +5,11 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.management.JMException;
 
 /**
  * Example program using GraphPoet.
@@ -13,16 +18,55 @@ import java.io.IOException;
  */
 public class Main {
     
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BRIDGE_INDEX_CAPACITY = 1 << 16;
+    private static final int POEM_CACHE_CAPACITY = 1 << 14;
+    
     /**
-     * Generate example poetry.
+     * Generate example poetry, or serve poems over HTTP.
+     * 
+     * <p>With no arguments, print an example poem. With arguments
+     * {@code serve [--snapshot] <file> [port]}, serve poems from the affinity
+     * graph of a corpus file (or of a snapshot written by GraphPoet.save())
+     * on localhost, port 8080 by default, until the process is stopped; see
+     * PoemServer for the endpoints. The poet's metrics are exported to JMX
+     * under the name "main"; see PoetMetrics.
      * 
-     * @param args unused
-     * @throws IOException if a poet corpus file cannot be found or read
+     * @param args empty, or as described above
+     * @throws IOException if a poet corpus file cannot be found or read, or
+     *         the server cannot listen on its port
      */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(args);
+            return;
+        }
         final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
         final String input = "Test the system.";
         System.out.println(input + "\n>>>\n" + nimoy.poem(input));
     }
     
+    private static void serve(String[] args) throws IOException {
+        boolean snapshot = args.length > 1 && args[1].equals("--snapshot");
+        int file = snapshot ? 2 : 1;
+        if (args.length <= file || args.length > file + 2) {
+            System.err.println("usage: Main serve [--snapshot] <file> [port]");
+            System.exit(2);
+        }
+        Path path = Paths.get(args[file]);
+        int port = args.length > file + 1 ? Integer.parseInt(args[file + 1]) : DEFAULT_PORT;
+        long start = System.nanoTime();
+        GraphPoet poet = (snapshot ? GraphPoet.load(path) : GraphPoet.parallel(path))
+                .withMetrics().withBridgeIndex(BRIDGE_INDEX_CAPACITY).withPoemCache(POEM_CACHE_CAPACITY);
+        try {
+            poet.metrics().get().register("main");
+        } catch (JMException e) {
+            System.err.println("metrics not exported to JMX: " + e);
+        }
+        System.err.printf("loaded %s in %d ms%n", path, (System.nanoTime() - start) / 1_000_000);
+        PoemServer server = PoemServer.start(poet, new InetSocketAddress("localhost", port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "poem-server-shutdown"));
+        System.err.println("serving poems on http://localhost:" + server.address().getPort() + "/poem");
+    }
+    
 }
@@ -0,0 +1,203 @@
+package poet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The most recent word pairs added to a windowed poet, oldest first, in a
+ * ring buffer.
+ *
+ * <p>A window may briefly hold more than its capacity: the poet adds each new
+ * pair, then removes the oldest pairs until the window fits again. Changes
+ * made since begin() can be undone by rollback(), so that text that fails to
+ * be read leaves the window as it was. Not safe for use by concurrent
+ * threads.
+ */
+class PairWindow {
+    private static final int MIN_LENGTH = 16;
+
+    private final int capacity;
+    private String[] sources;
+    private String[] targets;
+    private int head = 0;
+    private int size = 0;
+    private int added = 0;
+    private final List<String> removed = new ArrayList<>();
+
+    // Abstraction function:
+    //   Represents the pairs (sources[i], targets[i]) for i = head, head + 1,
+    //   ... (mod sources.length), size of them, oldest first; since begin(),
+    //   the newest added pairs were added, and the pairs in removed (source,
+    //   target, oldest first) were removed from the front
+    // Representation invariant:
+    //   sources.length == targets.length, a power of two, at least size
+    //   0 <= head < sources.length, and 0 <= added <= size
+    //   removed has an even number of elements, and holds only pairs that
+    //   were in the window at begin()
+    //   slots outside the window are null
+    // Safety from rep exposure:
+    //   all fields are private, and the arrays are never returned; the pairs
+    //   are immutable strings
+
+    /**
+     * Make an empty window.
+     *
+     * @param capacity number of pairs the window keeps, at least 1
+     */
+    PairWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        int length = lengthFor(Math.min(capacity + 1, MIN_LENGTH));
+        this.sources = new String[length];
+        this.targets = new String[length];
+    }
+
+    /**
+     * Make a window holding the pairs of another, which may be more than
+     * capacity of them.
+     *
+     * @param window window to copy
+     * @param capacity number of pairs the new window keeps, at least 1
+     */
+    PairWindow(PairWindow window, int capacity) {
+        this(capacity);
+        sources = new String[lengthFor(Math.max(window.size, MIN_LENGTH))];
+        targets = new String[sources.length];
+        for (int i = 0; i < window.size; i++) {
+            int slot = (window.head + i) & (window.sources.length - 1);
+            sources[i] = window.sources[slot];
+            targets[i] = window.targets[slot];
+        }
+        size = window.size;
+    }
+
+    private static int lengthFor(int count) {
+        return Integer.highestOneBit(Math.max(count, 1) * 2 - 1);
+    }
+
+    /**
+     * @return number of pairs the window keeps
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of pairs in the window
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Start recording changes, forgetting those recorded so far.
+     */
+    void begin() {
+        added = 0;
+        removed.clear();
+    }
+
+    /**
+     * Add the newest pair.
+     *
+     * @param source first word of the pair
+     * @param target second word of the pair
+     */
+    void add(String source, String target) {
+        if (size == sources.length) {
+            resize(2 * sources.length);
+        }
+        int slot = (head + size) & (sources.length - 1);
+        sources[slot] = source;
+        targets[slot] = target;
+        size++;
+        added++;
+    }
+
+    /**
+     * @return first word of the oldest pair; the window must not be empty
+     */
+    String oldestSource() {
+        return sources[head];
+    }
+
+    /**
+     * @return second word of the oldest pair; the window must not be empty
+     */
+    String oldestTarget() {
+        return targets[head];
+    }
+
+    /**
+     * Remove the oldest pair; the window must not be empty.
+     */
+    void removeOldest() {
+        if (added == size) {
+            // Added since begin(), so rollback() has nothing to restore
+            added--;
+        } else {
+            removed.add(sources[head]);
+            removed.add(targets[head]);
+        }
+        sources[head] = null;
+        targets[head] = null;
+        head = (head + 1) & (sources.length - 1);
+        size--;
+    }
+
+    /**
+     * Forget the changes recorded since begin(); they can no longer be undone.
+     */
+    void commit() {
+        added = 0;
+        removed.clear();
+    }
+
+    /**
+     * Undo the changes made since begin().
+     */
+    void rollback() {
+        for (; added > 0; added--) {
+            int slot = (head + size - 1) & (sources.length - 1);
+            sources[slot] = null;
+            targets[slot] = null;
+            size--;
+        }
+        for (int i = removed.size() - 2; i >= 0; i -= 2) {
+            if (size == sources.length) {
+                resize(2 * sources.length);
+            }
+            head = (head - 1) & (sources.length - 1);
+            sources[head] = removed.get(i);
+            targets[head] = removed.get(i + 1);
+            size++;
+        }
+        removed.clear();
+    }
+
+    private void resize(int length) {
+        String[] newSources = new String[length];
+        String[] newTargets = new String[length];
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) & (sources.length - 1);
+            newSources[i] = sources[slot];
+            newTargets[i] = targets[slot];
+        }
+        sources = newSources;
+        targets = newTargets;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        String[] pairs = new String[size];
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) & (sources.length - 1);
+            pairs[i] = sources[slot] + " -> " + targets[slot];
+        }
+        return Arrays.toString(pairs);
+    }
+}
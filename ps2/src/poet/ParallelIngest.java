@@ -0,0 +1,271 @@
+package poet;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import graph.Graph;
+
+/**
+ * Builds a word affinity graph from a UTF-8 corpus file using a fork-join pool.
+ *
+ * <p>The file is cut into chunks at delimiter bytes, which never occur inside
+ * a multi-byte UTF-8 sequence, so every chunk can be decoded and split into
+ * words on its own. Each worker counts the word pairs of its chunks, and
+ * adjacent partial counts are merged together with the pair that spans the
+ * boundary between them. The resulting graph is identical to the one built
+ * by reading the file sequentially, including the order of its vertices.
+ */
+class ParallelIngest {
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 23;
+    private static final int SCAN_SIZE = 1 << 12;
+
+    private ParallelIngest() {
+        // not instantiable
+    }
+
+    /**
+     * Read a corpus file in parallel.
+     *
+     * @param corpus path of a UTF-8 text file
+     * @param pool pool in which to run the workers
+     * @return the affinity graph of corpus, as GraphPoet defines it
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static Graph<String> read(Path corpus, ForkJoinPool pool) throws IOException {
+        return count(corpus, pool).toGraph();
+    }
+
+    /**
+     * Count the word pairs of a corpus file in parallel.
+     *
+     * @param corpus path of a UTF-8 text file
+     * @param pool pool in which to run the workers
+     * @return the word pair counts of corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static Counts count(Path corpus, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = Math.max(MIN_CHUNK_SIZE,
+                    Math.min(MAX_CHUNK_SIZE, size / (8L * pool.getParallelism()) + 1));
+            return count(channel, pool, (int) chunkSize);
+        }
+    }
+
+    static Graph<String> read(FileChannel channel, ForkJoinPool pool, int chunkSize) throws IOException {
+        return count(channel, pool, chunkSize).toGraph();
+    }
+
+    private static Counts count(FileChannel channel, ForkJoinPool pool, int chunkSize) throws IOException {
+        long[] bounds = chunkBounds(channel, chunkSize);
+        try {
+            return pool.invoke(new CountTask(channel, bounds, 0, bounds.length - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * Find chunk boundaries: roughly chunkSize bytes apart, each one either at
+     * a delimiter byte or at the end of the file.
+     */
+    private static long[] chunkBounds(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        long position = chunkSize;
+        while (position < size) {
+            long bound = size;
+            search:
+            while (position < size) {
+                scan.clear();
+                int read = channel.read(scan, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (isDelimiter(scan.get(i))) {
+                        bound = position + i;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+            bounds.add(bound);
+            position = bound + chunkSize;
+        }
+        if (bounds.get(bounds.size() - 1) != size) {
+            bounds.add(size);
+        }
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b < 0x80 && b >= 0 && WordScanner.isDelimiter((char) b);
+    }
+
+    /**
+     * Counts the word pairs of the chunks between bounds[from] and bounds[to].
+     */
+    private static class CountTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+
+        CountTask(FileChannel channel, long[] bounds, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from <= 1) {
+                try {
+                    return countChunk();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            CountTask right = new CountTask(channel, bounds, middle, to);
+            right.fork();
+            Counts left = new CountTask(channel, bounds, from, middle).compute();
+            return left.append(right.join());
+        }
+
+        private Counts countChunk() throws IOException {
+            Counts counts = new Counts();
+            if (from == to) {
+                return counts;
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) (bounds[to] - bounds[from]));
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, bounds[from] + bytes.position()) < 0) {
+                    break;
+                }
+            }
+            bytes.flip();
+            CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(bytes);
+            WordScanner scanner = new WordScanner(
+                    new CharArrayReader(chars.array(), chars.arrayOffset(), chars.limit()));
+            WordTable words = new WordTable();
+            while (scanner.advance()) {
+                counts.word(scanner.lowerCaseWord(words, true));
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Word pair counts for a contiguous run of the corpus.
+     */
+    static class Counts {
+        private final Set<String> words = new LinkedHashSet<>();
+        private final Map<String, Map<String, int[]>> pairs = new LinkedHashMap<>();
+        private String first = null;
+        private String last = null;
+        private long wordCount = 0;
+
+        // Abstraction function:
+        //   Represents the words of a run of the corpus: its first and last words,
+        //   its number of words, its distinct words in order of first occurrence,
+        //   and pairs.get(w1).get(w2)[0] occurrences of each adjacent pair w1 w2.
+        // Representation invariant:
+        //   first and last are null iff wordCount == 0
+        //   every count is positive, and every word of a pair is in words
+        // Safety from rep exposure:
+        //   all fields are private, and callers outside ParallelIngest only
+        //   read the immutable last word and a fresh graph
+
+        void word(String word) {
+            if (last != null) {
+                pair(last, word, 1);
+            } else {
+                first = word;
+            }
+            words.add(word);
+            last = word;
+            wordCount++;
+        }
+
+        private void pair(String source, String target, int count) {
+            pairs.computeIfAbsent(source, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(target, k -> new int[1])[0] += count;
+        }
+
+        /*
+         * Append the counts of the run immediately following this one, mutating
+         * and returning this.
+         */
+        Counts append(Counts next) {
+            if (next.wordCount == 0) {
+                return this;
+            }
+            if (wordCount == 0) {
+                return next;
+            }
+            pair(last, next.first, 1);
+            words.addAll(next.words);
+            for (Map.Entry<String, Map<String, int[]>> source : next.pairs.entrySet()) {
+                for (Map.Entry<String, int[]> target : source.getValue().entrySet()) {
+                    pair(source.getKey(), target.getKey(), target.getValue()[0]);
+                }
+            }
+            last = next.last;
+            wordCount += next.wordCount;
+            return this;
+        }
+
+        /**
+         * @return the last word of the run, or null if it has no words
+         */
+        String last() {
+            return last;
+        }
+
+        /**
+         * @return a new graph with the word pair counts of the run as edges
+         */
+        Graph<String> toGraph() {
+            Graph<String> graph = Graph.empty();
+            if (wordCount < 2) {
+                return graph; // a lone word is never part of a pair
+            }
+            for (String word : words) {
+                graph.add(word);
+            }
+            for (Map.Entry<String, Map<String, int[]>> source : pairs.entrySet()) {
+                for (Map.Entry<String, int[]> target : source.getValue().entrySet()) {
+                    graph.set(source.getKey(), target.getKey(), target.getValue()[0]);
+                }
+            }
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package poet;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of whole poems, keyed on their input strings.
+ *
+ * <p>A poem can depend on any edge of the graph, so an entry answers only for
+ * the graph version it was computed from; once the graph changes, each input
+ * is computed again when next requested, and the entries of older versions
+ * are replaced or evicted as least recently used. Inputs longer than
+ * MAX_INPUT_LENGTH are never cached, so that a few huge inputs cannot crowd
+ * out many small ones. Safe for use by concurrent threads.
+ */
+class PoemCache {
+    static final int MAX_INPUT_LENGTH = 1 << 12;
+
+    private final LruCache<String, Entry> poems;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Abstraction function:
+    //   Represents a partial map from inputs and graph versions to poems,
+    //   where poems.get(input) is the poem of input in its version; hits and
+    //   misses count the lookups answered by an entry and by computing
+    // Representation invariant:
+    //   no key or value of poems is null, and no key is longer than
+    //   MAX_INPUT_LENGTH
+    // Safety from rep exposure:
+    //   all fields are private and final and never returned; entries are immutable
+    // Thread safety argument:
+    //   poems and the counters are thread-safe; an entry is only replaced by
+    //   one of a later version
+
+    /**
+     * Make an empty cache.
+     *
+     * @param capacity maximum number of poems to remember, at least 1
+     */
+    PoemCache(int capacity) {
+        this.poems = new LruCache<>(capacity);
+    }
+
+    /**
+     * @return maximum number of poems this cache remembers
+     */
+    int capacity() {
+        return poems.capacity();
+    }
+
+    /**
+     * Look up the poem of an input.
+     *
+     * @param input input of the poem
+     * @param version number of the graph version to answer for
+     * @param compute function computing the poem of an input in that
+     *                version; called only if the input is not cached for it
+     * @return the poem of input
+     */
+    String poem(String input, long version, Function<String, String> compute) {
+        if (input.length() > MAX_INPUT_LENGTH) {
+            return compute.apply(input);
+        }
+        Entry entry = poems.get(input);
+        if (entry != null && entry.version == version) {
+            hits.increment();
+            return entry.poem;
+        }
+        misses.increment();
+        String poem = compute.apply(input);
+        poems.merge(input, new Entry(poem, version),
+                (existing, computed) -> existing.version < computed.version ? computed : existing);
+        return poem;
+    }
+
+    /**
+     * @return number of poems currently cached
+     */
+    int size() {
+        return poems.size();
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups of inputs short enough to cache that were
+     *         computed
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * An immutable poem, and the version of the graph it was computed from.
+     */
+    private static final class Entry {
+        private final String poem;
+        private final long version;
+
+        Entry(String poem, long version) {
+            this.poem = poem;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package poet;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import graph.LatencyHistogram;
+
+/**
+ * A local HTTP server that generates poems with a GraphPoet.
+ *
+ * <p>Endpoints:
+ * <ul>
+ * <li>{@code GET /poem?text=...} responds with the poem for the
+ *     (URL-encoded) text parameter.
+ * <li>{@code POST /poem} responds with the poem for the UTF-8 request body,
+ *     streamed as it is generated, so inputs of any length can be sent.
+ * <li>{@code GET /stats} responds with a JSON object of counters for the poem
+ *     requests served so far: how many, how many failed, how many are in
+ *     flight, throughput since start, latency percentiles in microseconds,
+ *     and the hits and misses of the poet's caches.
+ * </ul>
+ * Poems are plain UTF-8 text, exactly as GraphPoet.poem() returns them.
+ *
+ * <p>Each request runs on its own virtual thread when the JDK provides them,
+ * and otherwise on a thread from an unbounded pool. GraphPoet.poem() never
+ * blocks, so requests are served concurrently without limit.
+ */
+public final class PoemServer implements AutoCloseable {
+
+    /** Time that close() lets requests in flight run before stopping them. */
+    public static final Duration DEFAULT_GRACE = Duration.ofSeconds(5);
+
+    private static final String TEXT = "text/plain; charset=utf-8";
+
+    private final GraphPoet poet;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long started = System.nanoTime();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean stopping = false;
+
+    // Abstraction function:
+    //   Represents an HTTP server at server's address answering with poems by
+    //   poet, which has served latency.count() poem requests, errors of them
+    //   unsuccessfully, and is serving inFlight more; it refuses new requests
+    //   once stopping
+    // Representation invariant:
+    //   inFlight >= 0
+    //   server runs its handlers on executor
+    // Safety from rep exposure:
+    //   all fields are private, and only numbers and text are returned
+    // Thread safety argument:
+    //   handlers run concurrently; poet is thread-safe, counters are atomic
+    //   or LongAdders, and stopping is volatile; stop() waits on this
+    //   object's monitor, which handlers notify when inFlight drops to 0
+
+    /**
+     * Start serving poems.
+     *
+     * @param poet poet that generates the poems
+     * @param address address to listen on; port 0 picks a free port
+     * @return a running server
+     * @throws IOException if the server cannot listen on address
+     */
+    public static PoemServer start(GraphPoet poet, InetSocketAddress address) throws IOException {
+        return new PoemServer(poet, HttpServer.create(address, 0));
+    }
+
+    private PoemServer(GraphPoet poet, HttpServer server) {
+        this.poet = poet;
+        this.server = server;
+        this.executor = requestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/poem", this::poem);
+        server.createContext("/stats", this::stats);
+        server.start();
+    }
+
+    /*
+     * A virtual thread per task if the running JDK has them (looked up
+     * reflectively, since this code also runs on JDKs that do not), otherwise
+     * a cached pool of daemon threads.
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "poem-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return the address the server listens on
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return counters for the poem requests served so far, as the JSON
+     *         object that /stats responds with
+     */
+    public String stats() {
+        long requests = latency.count();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        CacheStats cache = poet.cacheStats();
+        return String.format(Locale.ROOT,
+                "{\"requests\":%d,\"errors\":%d,\"inFlight\":%d,\"uptimeSeconds\":%.3f,"
+                        + "\"requestsPerSecond\":%.1f,\"latencyMicros\":{\"mean\":%.1f,"
+                        + "\"p50\":%d,\"p90\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d},"
+                        + "\"cache\":{\"bridgeHits\":%d,\"bridgeMisses\":%d,\"poemHits\":%d,\"poemMisses\":%d}}",
+                requests, errors.sum(), inFlight.get(), seconds, requests / seconds,
+                latency.mean() / 1e3, micros(latency.percentile(0.5)), micros(latency.percentile(0.9)),
+                micros(latency.percentile(0.99)), micros(latency.percentile(0.999)), micros(latency.max()),
+                cache.bridgeHits(), cache.bridgeMisses(), cache.poemHits(), cache.poemMisses());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private void poem(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        boolean ok = false;
+        try {
+            if (stopping) {
+                exchange.getResponseHeaders().set("Connection", "close");
+                respond(exchange, 503, "server is stopping\n");
+                return;
+            }
+            switch (exchange.getRequestMethod()) {
+            case "GET":
+                String text = parameter(exchange.getRequestURI().getRawQuery(), "text");
+                if (text == null) {
+                    respond(exchange, 400, "missing query parameter: text\n");
+                } else {
+                    respond(exchange, 200, poet.poem(text));
+                    ok = true;
+                }
+                break;
+            case "POST":
+                // Streamed, so a malformed body is only noticed after the status is sent
+                exchange.getResponseHeaders().set("Content-Type", TEXT);
+                exchange.sendResponseHeaders(200, 0);
+                try (Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                    poet.poem(new InputStreamReader(exchange.getRequestBody(),
+                            StandardCharsets.UTF_8.newDecoder()), out);
+                }
+                ok = true;
+                break;
+            default:
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                respond(exchange, 405, "method not allowed\n");
+            }
+        } finally {
+            exchange.close();
+            if (!ok) {
+                errors.increment();
+            }
+            latency.record(System.nanoTime() - start);
+            if (inFlight.decrementAndGet() == 0 && stopping) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, 405, "method not allowed\n");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            byte[] body = stats().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", TEXT);
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /*
+     * The decoded value of the first parameter named name in a raw query
+     * string, or null if there is none.
+     */
+    static String parameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stop the server gracefully: new requests are refused with status 503,
+     * requests in flight are given up to grace to finish, and then the
+     * server stops listening and any requests still running are interrupted.
+     * Does nothing if the server was already stopped.
+     *
+     * @param grace how long to wait for requests in flight
+     */
+    public void stop(Duration grace) {
+        long deadline = System.nanoTime() + grace.toNanos();
+        synchronized (this) {
+            if (stopping) {
+                return;
+            }
+            stopping = true;
+            try {
+                long remaining;
+                while (inFlight.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        server.stop(0);
+        executor.shutdown();
+        try {
+            long remaining = deadline - System.nanoTime();
+            if (!executor.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop the server gracefully, waiting up to DEFAULT_GRACE for requests in
+     * flight, as stop() does.
+     */
+    @Override
+    public void close() {
+        stop(DEFAULT_GRACE);
+    }
+}
@@ -0,0 +1,193 @@
+package poet;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import graph.Graph;
+import graph.GraphMetrics;
+
+/**
+ * What one GraphPoet has done since its metrics were enabled by
+ * GraphPoet.withMetrics(): text ingested, bridge words looked up, and the
+ * calls it made to its affinity graph, along with the current size of that
+ * graph. Safe for use by concurrent threads.
+ *
+ * <p>A PoetMetrics is an MXBean, and register() exports it, together with
+ * the graph's GraphMetrics, to the platform MBeanServer for JMX clients.
+ */
+public final class PoetMetrics implements PoetMetricsMXBean {
+    private static final String DOMAIN = "poet";
+
+    private final Supplier<Graph<String>> graph;
+    private final GraphMetrics graphMetrics = new GraphMetrics();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder words = new LongAdder();
+    private final LongAdder ingestNanos = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Abstraction function:
+    //   Represents the activity of a poet whose current affinity graph is
+    //   graph.get(): bytes and words ingested in ingestNanos nanoseconds,
+    //   lookups bridge lookups of which misses searched the graph, and the
+    //   graph calls recorded in graphMetrics
+    // Representation invariant:
+    //   every counter is non-negative
+    // Safety from rep exposure:
+    //   all fields are private and final; graphMetrics is returned, but only
+    //   its thread-safe recording and reading methods are public
+    // Thread safety argument:
+    //   the counters are LongAdders and graphMetrics is thread-safe; graph
+    //   returns an immutable graph
+    //   readers may see one recording counted in some counters but not yet in
+    //   others
+
+    /*
+     * graph supplies the poet's current (immutable) affinity graph.
+     */
+    PoetMetrics(Supplier<Graph<String>> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return the calls the poet made to its affinity graph, while generating
+     *         poems and adding text
+     */
+    public GraphMetrics graphMetrics() {
+        return graphMetrics;
+    }
+
+    /*
+     * Record text added to the poet: size is its length in bytes when read
+     * from a file, or in chars otherwise.
+     */
+    void ingested(long size, long wordCount, long nanos) {
+        bytes.add(size);
+        words.add(wordCount);
+        ingestNanos.add(nanos);
+    }
+
+    void bridgeLookup() {
+        lookups.increment();
+    }
+
+    void bridgeMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Export these metrics to the platform MBeanServer, as
+     * {@code poet:type=PoetMetrics,name=<name>} and
+     * {@code poet:type=GraphMetrics,name=<name>}.
+     *
+     * @param name name identifying the poet among those registered
+     * @throws JMException if the name is in use or the beans cannot be registered
+     */
+    public void register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName("PoetMetrics", name));
+        try {
+            server.registerMBean(graphMetrics, objectName("GraphMetrics", name));
+        } catch (JMException e) {
+            server.unregisterMBean(objectName("PoetMetrics", name));
+            throw e;
+        }
+    }
+
+    /**
+     * Stop exporting metrics registered by register().
+     *
+     * @param name name they were registered with
+     * @throws JMException if they are not registered
+     */
+    public void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.unregisterMBean(objectName("PoetMetrics", name));
+        server.unregisterMBean(objectName("GraphMetrics", name));
+    }
+
+    private static ObjectName objectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * @return size of the text added to the poet, in bytes for text read from
+     *         files and in chars for text added as strings
+     */
+    @Override
+    public long getBytesIngested() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getWordsIngested() {
+        return words.sum();
+    }
+
+    @Override
+    public double getIngestSeconds() {
+        return ingestNanos.sum() / 1e9;
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        double seconds = getIngestSeconds();
+        return seconds == 0 ? 0 : getBytesIngested() / seconds;
+    }
+
+    @Override
+    public double getWordsPerSecond() {
+        double seconds = getIngestSeconds();
+        return seconds == 0 ? 0 : getWordsIngested() / seconds;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return graph.get().vertices().size();
+    }
+
+    /**
+     * @return number of edges of the poet's affinity graph; takes time in
+     *         proportion to the number of vertices
+     */
+    @Override
+    public long getEdgeCount() {
+        return GraphMetrics.edgeCount(graph.get());
+    }
+
+    /**
+     * @return estimated heap footprint of the poet's affinity graph, as
+     *         GraphMetrics.estimatedHeapBytes(); takes time in proportion to
+     *         the number of vertices
+     */
+    @Override
+    public long getEstimatedHeapBytes() {
+        return GraphMetrics.estimatedHeapBytes(graph.get());
+    }
+
+    @Override
+    public long getBridgeLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public long getBridgeHits() {
+        return Math.max(getBridgeLookups() - getBridgeMisses(), 0);
+    }
+
+    @Override
+    public long getBridgeMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getBridgeHitRate() {
+        long lookups = getBridgeLookups();
+        return lookups == 0 ? 0 : getBridgeHits() / (double) lookups;
+    }
+}
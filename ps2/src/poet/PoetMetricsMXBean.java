@@ -0,0 +1,68 @@
+package poet;
+
+/**
+ * Management interface of PoetMetrics, for JMX clients.
+ */
+public interface PoetMetricsMXBean {
+
+    /**
+     * @return size of the text added to the poet, as PoetMetrics.bytesIngested()
+     */
+    long getBytesIngested();
+
+    /**
+     * @return number of words added to the poet
+     */
+    long getWordsIngested();
+
+    /**
+     * @return total time spent adding text to the poet, in seconds
+     */
+    double getIngestSeconds();
+
+    /**
+     * @return bytes added per second of time spent adding text
+     */
+    double getBytesPerSecond();
+
+    /**
+     * @return words added per second of time spent adding text
+     */
+    double getWordsPerSecond();
+
+    /**
+     * @return number of vertices of the poet's affinity graph
+     */
+    int getVertexCount();
+
+    /**
+     * @return number of edges of the poet's affinity graph
+     */
+    long getEdgeCount();
+
+    /**
+     * @return estimated heap footprint of the poet's affinity graph in bytes
+     */
+    long getEstimatedHeapBytes();
+
+    /**
+     * @return number of bridge words looked up while generating poems
+     */
+    long getBridgeLookups();
+
+    /**
+     * @return number of bridge lookups answered from a cache
+     */
+    long getBridgeHits();
+
+    /**
+     * @return number of bridge lookups that searched the graph
+     */
+    long getBridgeMisses();
+
+    /**
+     * @return fraction of bridge lookups answered from a cache, or 0 if
+     *         there were none
+     */
+    double getBridgeHitRate();
+}
@@ -0,0 +1,547 @@
+package poet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import graph.CsrEdgeSpliterator;
+import graph.Edge;
+import graph.Graph;
+
+/**
+ * A read-only word affinity graph backed by a memory-mapped snapshot file.
+ *
+ * <p>Opening a snapshot only maps the file; vertex labels are decoded the
+ * first time they are needed, so a graph of any size opens in constant time.
+ * Within sources() and targets(), neighbors are listed in the order of
+ * vertices(), which is the order of the vertices of the graph that was saved.
+ *
+ * <p>Snapshot file format, version 1. All integers are big-endian.
+ * <pre>
+ *   header, 32 bytes:
+ *     int   magic, 0x47505331 ("GPS1")
+ *     int   format version
+ *     int   V, number of vertices
+ *     int   E, number of edges
+ *     long  S, length of the string data in bytes
+ *     long  CRC-32 of every byte that follows the header
+ *   int[V+1]  stringOffsets: label i is the UTF-8 string data[stringOffsets[i]..stringOffsets[i+1])
+ *   int[V]    sortedIds: vertex ids ordered by the unsigned bytes of their labels
+ *   int[V+1]  outOffsets: edges from vertex i are outTargets/outWeights[outOffsets[i]..outOffsets[i+1])
+ *   int[E]    outTargets, ascending within each vertex
+ *   int[E]    outWeights
+ *   int[V+1]  inOffsets: edges to vertex i are inSources/inWeights[inOffsets[i]..inOffsets[i+1])
+ *   int[E]    inSources, ascending within each vertex
+ *   int[E]    inWeights
+ *   byte[S]   string data
+ * </pre>
+ *
+ * <p>Every mutator throws UnsupportedOperationException.
+ */
+final class SnapshotGraph implements Graph<String> {
+    static final int MAGIC = 0x47505331;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int CHECKSUM_CHUNK = 1 << 26;
+
+    private final int vertexCount;
+    private final IntBuffer stringOffsets;
+    private final IntBuffer sortedIds;
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final IntBuffer outWeights;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final IntBuffer inWeights;
+    private final ByteBuffer strings;
+    private final String[] labels;
+
+    // Abstraction function:
+    //   Represents the graph stored in the mapped sections of a snapshot file
+    //   (as described above); labels[i], if not null, is the decoded label of vertex i.
+    // Representation invariant:
+    //   the sections have the lengths given by the file format for vertexCount
+    //   vertices, and every label, if not null, equals the decoded string of its id
+    // Safety from rep exposure:
+    //   all fields are private and final; buffers and labels are never returned
+    //   vertices(), sources() and targets() return unmodifiable views
+    // Thread safety argument:
+    //   the mapped buffers are only read, with absolute gets
+    //   labels is filled racily, but with immutable Strings that are equal
+    //   whichever thread decodes them, so every read sees null or a correct label
+
+    private SnapshotGraph(FileChannel channel, int vertexCount, int edgeCount, long stringLength)
+            throws IOException {
+        this.vertexCount = vertexCount;
+        long position = HEADER_SIZE;
+        this.stringOffsets = mapInts(channel, position, vertexCount + 1);
+        position += 4L * (vertexCount + 1);
+        this.sortedIds = mapInts(channel, position, vertexCount);
+        position += 4L * vertexCount;
+        this.outOffsets = mapInts(channel, position, vertexCount + 1);
+        position += 4L * (vertexCount + 1);
+        this.outTargets = mapInts(channel, position, edgeCount);
+        position += 4L * edgeCount;
+        this.outWeights = mapInts(channel, position, edgeCount);
+        position += 4L * edgeCount;
+        this.inOffsets = mapInts(channel, position, vertexCount + 1);
+        position += 4L * (vertexCount + 1);
+        this.inSources = mapInts(channel, position, edgeCount);
+        position += 4L * edgeCount;
+        this.inWeights = mapInts(channel, position, edgeCount);
+        position += 4L * edgeCount;
+        this.strings = channel.map(FileChannel.MapMode.READ_ONLY, position, stringLength);
+        this.labels = new String[vertexCount];
+    }
+
+    private static IntBuffer mapInts(FileChannel channel, long position, int count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).asIntBuffer();
+    }
+
+    private static long expectedSize(int vertexCount, int edgeCount, long stringLength) {
+        return HEADER_SIZE + 4L * (3L * (vertexCount + 1) + vertexCount + 4L * edgeCount) + stringLength;
+    }
+
+    /**
+     * Open a snapshot file.
+     *
+     * @param file snapshot file written by write()
+     * @param verify whether to check the checksum of the whole file, which
+     *               reads every byte of it
+     * @return the graph stored in file
+     * @throws IOException if file cannot be read, is not a snapshot of a
+     *         supported version, or is truncated or (if verified) corrupt
+     */
+    static SnapshotGraph open(Path file, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("not a GraphPoet snapshot: " + file);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version + ": " + file);
+            }
+            int vertexCount = header.getInt(8);
+            int edgeCount = header.getInt(12);
+            long stringLength = header.getLong(16);
+            if (vertexCount < 0 || edgeCount < 0 || stringLength < 0
+                    || channel.size() != expectedSize(vertexCount, edgeCount, stringLength)) {
+                throw new IOException("truncated or corrupt snapshot: " + file);
+            }
+            if (verify && checksum(channel) != header.getLong(24)) {
+                throw new IOException("snapshot checksum mismatch: " + file);
+            }
+            return new SnapshotGraph(channel, vertexCount, edgeCount, stringLength);
+        }
+    }
+
+    private static long checksum(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = channel.size();
+        for (long position = HEADER_SIZE; position < size; position += CHECKSUM_CHUNK) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(CHECKSUM_CHUNK, size - position)));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Write a snapshot file.
+     *
+     * @param graph graph to save; it is only read
+     * @param file destination, replaced atomically if it exists
+     * @throws IOException if file cannot be written, or graph is too large for the format
+     */
+    static void write(Graph<String> graph, Path file) throws IOException {
+        List<String> vertices = new ArrayList<>(graph.vertices());
+        int n = vertices.size();
+        Map<String, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        byte[][] encoded = new byte[n][];
+        int[] stringOffsets = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            ids.put(vertices.get(id), id);
+            encoded[id] = vertices.get(id).getBytes(StandardCharsets.UTF_8);
+            long end = (long) stringOffsets[id] + encoded[id].length;
+            if (end > Integer.MAX_VALUE) {
+                throw new IOException("vocabulary too large for snapshot format");
+            }
+            stringOffsets[id + 1] = (int) end;
+        }
+        int[] sortedIds = IntStream.range(0, n).boxed()
+                .sorted((a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        // Out-edges sorted by target id within each vertex
+        int[] outOffsets = new int[n + 1];
+        List<long[]> rows = new ArrayList<>(n);
+        for (int id = 0; id < n; id++) {
+            long[] row = new long[graph.outDegree(vertices.get(id))];
+            int[] k = {0};
+            graph.forEachTarget(vertices.get(id), (target, weight) ->
+                    row[k[0]++] = ((long) ids.get(target) << 32) | weight);
+            Arrays.sort(row);
+            rows.add(row);
+            outOffsets[id + 1] = outOffsets[id] + row.length;
+        }
+        int edgeCount = outOffsets[n];
+        int[] outTargets = new int[edgeCount];
+        int[] outWeights = new int[edgeCount];
+        for (int id = 0, i = 0; id < n; id++) {
+            for (long edge : rows.get(id)) {
+                outTargets[i] = (int) (edge >>> 32);
+                outWeights[i++] = (int) edge;
+            }
+            rows.set(id, null);
+        }
+
+        // In-edges are the transpose; scanning sources in id order keeps them sorted
+        int[] inOffsets = new int[n + 1];
+        for (int target : outTargets) {
+            inOffsets[target + 1]++;
+        }
+        for (int id = 0; id < n; id++) {
+            inOffsets[id + 1] += inOffsets[id];
+        }
+        int[] inSources = new int[edgeCount];
+        int[] inWeights = new int[edgeCount];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int source = 0; source < n; source++) {
+            for (int i = outOffsets[source]; i < outOffsets[source + 1]; i++) {
+                int slot = next[outTargets[i]]++;
+                inSources[slot] = source;
+                inWeights[slot] = outWeights[i];
+            }
+        }
+
+        // Write beside the destination and rename it into place, so a poet that
+        // has the old file mapped keeps reading it, and a failed write leaves it
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_SIZE);
+                CheckedOutputStream checked = new CheckedOutputStream(Channels.newOutputStream(channel), new CRC32());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+                for (int[] section : new int[][] {stringOffsets, sortedIds, outOffsets, outTargets, outWeights,
+                        inOffsets, inSources, inWeights}) {
+                    for (int value : section) {
+                        out.writeInt(value);
+                    }
+                }
+                for (byte[] label : encoded) {
+                    out.write(label);
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(edgeCount)
+                        .putLong(stringOffsets[n]).putLong(checked.getChecksum().getValue());
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private String label(int id) {
+        String label = labels[id];
+        if (label == null) {
+            int from = stringOffsets.get(id);
+            byte[] bytes = new byte[stringOffsets.get(id + 1) - from];
+            ByteBuffer slice = strings.duplicate();
+            slice.position(from);
+            slice.get(bytes);
+            label = new String(bytes, StandardCharsets.UTF_8);
+            labels[id] = label;
+        }
+        return label;
+    }
+
+    /*
+     * Find the id of a label by binary search over the sorted labels.
+     */
+    private int id(Object label) {
+        if (!(label instanceof String)) {
+            return -1;
+        }
+        byte[] key = ((String) label).getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = vertexCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = sortedIds.get(middle);
+            int cmp = compare(id, key);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int id, byte[] key) {
+        int from = stringOffsets.get(id);
+        int length = stringOffsets.get(id + 1) - from;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int cmp = Byte.toUnsignedInt(strings.get(from + i)) - Byte.toUnsignedInt(key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    private static int search(IntBuffer row, int from, int to, int key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = row.get(middle);
+            if (value < key) {
+                low = middle + 1;
+            } else if (value > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean add(String vertex) {
+        throw new UnsupportedOperationException("snapshot graph cannot be modified");
+    }
+
+    @Override
+    public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("snapshot graph cannot be modified");
+    }
+
+    @Override
+    public int set(String source, String target, int weight) {
+        throw new UnsupportedOperationException("snapshot graph cannot be modified");
+    }
+
+    @Override
+    public Set<String> vertices() {
+        return new AbstractSet<String>() {
+            @Override
+            public boolean contains(Object o) {
+                return id(o) >= 0;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < vertexCount;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return label(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return vertexCount;
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Integer> sources(String target) {
+        int id = id(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(inOffsets.get(id), inOffsets.get(id + 1), inSources, inWeights);
+    }
+
+    @Override
+    public Map<String, Integer> targets(String source) {
+        int id = id(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(outOffsets.get(id), outOffsets.get(id + 1), outTargets, outWeights);
+    }
+
+    @Override
+    public void forEachTarget(String source, ObjIntConsumer<? super String> action) {
+        int id = id(source);
+        if (id >= 0) {
+            for (int i = outOffsets.get(id); i < outOffsets.get(id + 1); i++) {
+                action.accept(label(outTargets.get(i)), outWeights.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void forEachSource(String target, ObjIntConsumer<? super String> action) {
+        int id = id(target);
+        if (id >= 0) {
+            for (int i = inOffsets.get(id); i < inOffsets.get(id + 1); i++) {
+                action.accept(label(inSources.get(i)), inWeights.get(i));
+            }
+        }
+    }
+
+    @Override
+    public int weight(String source, String target) {
+        int from = id(source);
+        int to = id(target);
+        if (from < 0 || to < 0) {
+            return 0;
+        }
+        int i = search(outTargets, outOffsets.get(from), outOffsets.get(from + 1), to);
+        return i < 0 ? 0 : outWeights.get(i);
+    }
+
+    @Override
+    public int outDegree(String source) {
+        int id = id(source);
+        return id < 0 ? 0 : outOffsets.get(id + 1) - outOffsets.get(id);
+    }
+
+    @Override
+    public int inDegree(String target) {
+        int id = id(target);
+        return id < 0 ? 0 : inOffsets.get(id + 1) - inOffsets.get(id);
+    }
+
+    /**
+     * @return the edges of this graph, by source in the order of vertices(),
+     *         through a CsrEdgeSpliterator that splits evenly by edge
+     */
+    @Override
+    public Stream<Edge<String>> edges() {
+        return StreamSupport.stream(new CsrEdgeSpliterator<String>(vertexCount, outOffsets::get,
+                outTargets::get, outWeights::get, this::label), false);
+    }
+
+    /**
+     * A read-only map view of the neighbors in one row of the snapshot.
+     */
+    private final class Row extends AbstractMap<String, Integer> {
+        private final int from;
+        private final int to;
+        private final IntBuffer neighbors;
+        private final IntBuffer weights;
+
+        Row(int from, int to, IntBuffer neighbors, IntBuffer weights) {
+            this.from = from;
+            this.to = to;
+            this.neighbors = neighbors;
+            this.weights = weights;
+        }
+
+        private int indexOf(Object key) {
+            int id = id(key);
+            return id < 0 ? -1 : search(neighbors, from, to, id);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : weights.get(i);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    return new Iterator<Map.Entry<String, Integer>>() {
+                        private int next = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < to;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(label(neighbors.get(i)), weights.get(i));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot graph with " + vertexCount + " vertices and " + outTargets.capacity() + " edges";
+    }
+}
@@ -0,0 +1,272 @@
+package poet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Splits a stream of characters into words, reading the stream incrementally.
+ *
+ * <p>A word is a maximal non-empty run of characters other than space, tab,
+ * newline, carriage return and form feed; these are the same delimiters that
+ * java.util.StringTokenizer uses by default. Only one buffer of characters is
+ * held at a time, so memory use does not depend on the length of the stream.
+ *
+ * <p>advance() moves to the next word without allocating; the current word can
+ * then be copied out, or lowercased and looked up in a WordTable, which
+ * allocates only when a new word is added to the table.
+ */
+class WordScanner {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SCRATCH_SIZE = 64;
+
+    private final Reader in;
+    private char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private final boolean asciiLowerCase;
+
+    private char[] scratch = new char[SCRATCH_SIZE];
+    private char[] lower = new char[SCRATCH_SIZE];
+    private char[] wordChars = null;
+    private int wordOffset = 0;
+    private int wordLength = 0;
+    private long wordCount = 0;
+
+    // Abstraction function:
+    //   Represents the current word wordChars[wordOffset..wordOffset+wordLength-1]
+    //   (none if wordChars is null), followed by the words of the characters
+    //   buffer[position..limit-1] and then of the unread remainder of in
+    //   (nothing more if in is null).
+    // Representation invariant:
+    //   0 <= position <= limit <= buffer.length
+    //   wordChars is null, buffer or scratch, and if not null the current word
+    //   is a non-empty slice of it with no delimiters
+    //   wordCount is the number of words advanced to since this scanner was
+    //   made or last reset
+    //   asciiLowerCase is true iff String.toLowerCase() maps 'A'..'Z' to 'a'..'z'
+    //   in the default locale when this scanner was made
+    // Safety from rep exposure:
+    //   all fields are private; only fresh or canonical (immutable) Strings are
+    //   returned, and appendWord() copies chars out
+
+    /**
+     * Make a scanner over a stream of characters.
+     *
+     * @param in characters to split into words; the caller remains responsible
+     *           for closing it
+     */
+    public WordScanner(Reader in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    WordScanner(Reader in, int bufferSize) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+        this.asciiLowerCase = asciiLowerCase();
+    }
+
+    /**
+     * Make a scanner over a string of characters.
+     *
+     * @param text characters to split into words
+     */
+    public WordScanner(CharSequence text) {
+        this.in = null;
+        this.buffer = new char[text.length()];
+        this.asciiLowerCase = asciiLowerCase();
+        reset(text);
+    }
+
+    /**
+     * Start scanning another string of characters, reusing this scanner's
+     * buffers. Only for scanners made from a string.
+     *
+     * @param text characters to split into words
+     */
+    public void reset(CharSequence text) {
+        if (in != null) {
+            throw new IllegalStateException("scanner reads a stream");
+        }
+        int length = text.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, 2 * buffer.length)];
+        }
+        if (text instanceof String) {
+            ((String) text).getChars(0, length, buffer, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                buffer[i] = text.charAt(i);
+            }
+        }
+        position = 0;
+        limit = length;
+        wordChars = null;
+        wordCount = 0;
+    }
+
+    /**
+     * @return number of words advance() has moved to, since this scanner was
+     *         made or last reset
+     */
+    long wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return number of chars this scanner buffers
+     */
+    int bufferSize() {
+        return buffer.length;
+    }
+
+    /*
+     * Locales whose lowercase mapping of ASCII letters is not the plain one,
+     * e.g. 'I' -> dotless i in Turkish.
+     */
+    private static boolean asciiLowerCase() {
+        String language = Locale.getDefault().getLanguage();
+        return !("tr".equals(language) || "az".equals(language) || "lt".equals(language));
+    }
+
+    static boolean isDelimiter(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    /**
+     * Move to the next word, without allocating unless the word is longer
+     * than any seen before and spans two reads of the stream.
+     *
+     * @return true if there is a next word, which becomes the current word;
+     *         false if there are no more words
+     * @throws IOException if the stream cannot be read
+     */
+    public boolean advance() throws IOException {
+        wordChars = null;
+        // Skip delimiters
+        while (true) {
+            while (position < limit && isDelimiter(buffer[position])) {
+                position++;
+            }
+            if (position < limit) {
+                break;
+            }
+            if (!fill()) {
+                return false;
+            }
+        }
+
+        // Collect the word, which may span several buffer fills
+        int start = position;
+        int spanned = 0;
+        while (true) {
+            while (position < limit && !isDelimiter(buffer[position])) {
+                position++;
+            }
+            if (position < limit || in == null) {
+                break;
+            }
+            spanned = copy(spanned, start, position - start);
+            start = 0;
+            if (!fill()) {
+                break;
+            }
+        }
+        if (spanned == 0) {
+            wordChars = buffer;
+            wordOffset = start;
+            wordLength = position - start;
+        } else {
+            wordChars = scratch;
+            wordOffset = 0;
+            wordLength = copy(spanned, start, position - start);
+        }
+        wordCount++;
+        return true;
+    }
+
+    /*
+     * Append buffer[start..start+length-1] to the first filled chars of scratch,
+     * returning the new number of filled chars.
+     */
+    private int copy(int filled, int start, int length) {
+        if (filled + length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(2 * scratch.length, filled + length));
+        }
+        System.arraycopy(buffer, start, scratch, filled, length);
+        return filled + length;
+    }
+
+    /**
+     * Read the next word.
+     *
+     * @return the next word of the stream, or null if there are no more words
+     * @throws IOException if the stream cannot be read
+     */
+    public String next() throws IOException {
+        return advance() ? word() : null;
+    }
+
+    /**
+     * @return a new String holding the current word; requires a current word
+     */
+    public String word() {
+        return new String(wordChars, wordOffset, wordLength);
+    }
+
+    /**
+     * Append the current word, in its original case, to a builder.
+     * Requires a current word.
+     *
+     * @param builder builder to append to
+     */
+    public void appendWord(StringBuilder builder) {
+        builder.append(wordChars, wordOffset, wordLength);
+    }
+
+    /**
+     * Lowercase the current word, as String.toLowerCase() would, and look it
+     * up in a table. Requires a current word.
+     *
+     * @param words table of lowercase words, or null to just allocate the
+     *              lowercase word
+     * @param add whether to add the word to words if it is missing
+     * @return the canonical instance of the lowercase word in words, or null
+     *         if it is missing and add is false; a new String if words is null
+     */
+    public String lowerCaseWord(WordTable words, boolean add) {
+        if (lower.length < wordLength) {
+            lower = new char[Math.max(2 * lower.length, wordLength)];
+        }
+        for (int i = 0; i < wordLength; i++) {
+            char c = wordChars[wordOffset + i];
+            if (c >= 0x80 || !asciiLowerCase) {
+                // Leave case mapping outside ASCII to the library
+                String word = word().toLowerCase();
+                if (words == null) {
+                    return word;
+                }
+                return add ? words.intern(word) : words.find(word);
+            }
+            lower[i] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        if (words == null) {
+            return new String(lower, 0, wordLength);
+        }
+        return add ? words.intern(lower, 0, wordLength) : words.find(lower, 0, wordLength);
+    }
+}
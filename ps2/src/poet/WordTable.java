@@ -0,0 +1,183 @@
+package poet;
+
+/**
+ * A set of words that maps each word to one canonical String instance, and
+ * can be searched with a slice of a char array so that looking up a word
+ * that is already present allocates nothing.
+ *
+ * <p>Words are added by a single thread at a time; lookups with find() may
+ * run concurrently with each other and with additions.
+ */
+class WordTable {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private volatile String[] slots;
+    private int size = 0;
+
+    // Abstraction function:
+    //   Represents the set of non-null Strings in slots.
+    // Representation invariant:
+    //   slots.length is a power of two, and fewer than half of the slots are used
+    //   each word is in the first free-or-matching slot of its linear probe
+    //   sequence starting at spread(word.hashCode()), and no word appears twice
+    //   size is the number of non-null slots
+    // Safety from rep exposure:
+    //   slots is private and never returned; Strings are immutable
+    // Thread safety argument:
+    //   words are only added by one thread at a time (a documented precondition)
+    //   a resize builds a complete new array before publishing it through the
+    //   volatile field, and a word is written to a slot only after it is fully
+    //   constructed, so a concurrent find() either sees the word or misses it
+
+    WordTable() {
+        this.slots = new String[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Make a table with the same words as another, which may keep changing
+     * independently.
+     *
+     * @param words table to copy; must not be added to during the copy
+     */
+    WordTable(WordTable words) {
+        this.slots = words.slots.clone();
+        this.size = words.size;
+    }
+
+    /**
+     * @return number of distinct words in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /*
+     * Same value as String.hashCode() of the slice, so it can be checked
+     * against the cached hash code of the words already in the table.
+     */
+    private static int hash(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    private static boolean matches(String word, int hash, char[] chars, int offset, int length) {
+        if (word.hashCode() != hash || word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find a word.
+     *
+     * @param chars array holding the word
+     * @param offset index of the first char of the word
+     * @param length number of chars in the word
+     * @return the canonical instance of the word, or null if it is not in the table
+     */
+    public String find(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        String[] table = slots;
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; table[i] != null; i = (i + 1) & mask) {
+            if (matches(table[i], hash, chars, offset, length)) {
+                return table[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find a word.
+     *
+     * @param word a word
+     * @return the canonical instance of word, or null if it is not in the table
+     */
+    public String find(String word) {
+        String[] table = slots;
+        int mask = table.length - 1;
+        for (int i = spread(word.hashCode()) & mask; table[i] != null; i = (i + 1) & mask) {
+            if (table[i].equals(word)) {
+                return table[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add a word if it is missing. Must not be called by two threads at once.
+     *
+     * @param chars array holding the word
+     * @param offset index of the first char of the word
+     * @param length number of chars in the word
+     * @return the canonical instance of the word, a new String if it was missing
+     */
+    public String intern(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        String[] table = slots;
+        int mask = table.length - 1;
+        int i = spread(hash) & mask;
+        for (; table[i] != null; i = (i + 1) & mask) {
+            if (matches(table[i], hash, chars, offset, length)) {
+                return table[i];
+            }
+        }
+        return insert(table, i, new String(chars, offset, length));
+    }
+
+    /**
+     * Add a word if it is missing. Must not be called by two threads at once.
+     *
+     * @param word a word
+     * @return the canonical instance of word, which is word itself if it was missing
+     */
+    public String intern(String word) {
+        String[] table = slots;
+        int mask = table.length - 1;
+        int i = spread(word.hashCode()) & mask;
+        for (; table[i] != null; i = (i + 1) & mask) {
+            if (table[i].equals(word)) {
+                return table[i];
+            }
+        }
+        return insert(table, i, word);
+    }
+
+    private String insert(String[] table, int slot, String word) {
+        if (2 * (size + 1) > table.length) {
+            String[] grown = new String[table.length * 2];
+            int mask = grown.length - 1;
+            for (String existing : table) {
+                if (existing != null) {
+                    int i = spread(existing.hashCode()) & mask;
+                    while (grown[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    grown[i] = existing;
+                }
+            }
+            int i = spread(word.hashCode()) & mask;
+            while (grown[i] != null) {
+                i = (i + 1) & mask;
+            }
+            grown[i] = word;
+            slots = grown;
+        } else {
+            table[slot] = word;
+        }
+        size++;
+        return word;
+    }
+}
@@ -0,0 +1,111 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for AdaptiveGraph, including migrations between its dense and sparse
+ * representations.
+ */
+public class AdaptiveGraphTest extends GraphInstanceTest {
+
+    @Override
+    public Graph<String> emptyInstance() {
+        return new AdaptiveGraph<>();
+    }
+
+    @Test
+    public void testSmallGraphIsDense() {
+        AdaptiveGraph<String> graph = new AdaptiveGraph<>();
+        assertTrue(graph.isDense());
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        assertTrue(graph.isDense());
+        assertEquals(2, graph.edgeCount());
+    }
+
+    @Test
+    public void testManyVerticesFewEdgesGoSparseAndBack() {
+        AdaptiveGraph<String> graph = new AdaptiveGraph<>();
+        for (int i = 0; i < 500; i++) {
+            graph.set("v" + i, "v" + (i + 1), i + 1);
+        }
+        assertFalse("expected a long path to be sparse", graph.isDense());
+        assertEquals(500, graph.edgeCount());
+        assertEquals(250, graph.weight("v249", "v250"));
+
+        for (int i = 0; i < 480; i++) {
+            graph.remove("v" + i);
+        }
+        assertTrue("expected few vertices to be dense again", graph.isDense());
+        assertEquals(21, graph.vertices().size());
+        assertEquals(20, graph.edgeCount());
+        assertEquals(490, graph.weight("v489", "v490"));
+        assertEquals(1, graph.inDegree("v500"));
+    }
+
+    @Test
+    public void testDenseSubgraphBecomesDense() {
+        AdaptiveGraph<Integer> graph = new AdaptiveGraph<>();
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            graph.add(i);
+        }
+        assertFalse(graph.isDense());
+        Random random = new Random(7);
+        while (!graph.isDense()) {
+            graph.increment(random.nextInt(n), random.nextInt(n), 1);
+        }
+        assertTrue(8L * graph.edgeCount() >= (long) n * n);
+
+        // Removing a few edges just below the entry threshold must not flip back
+        int removed = 0;
+        for (int s = 0; s < n && removed < 100; s++) {
+            for (int t = 0; t < n && removed < 100; t++) {
+                if (graph.set(s, t, 0) > 0) {
+                    removed++;
+                }
+            }
+        }
+        assertTrue(graph.isDense());
+    }
+
+    @Test
+    public void testMatchesReferenceAcrossMigrations() {
+        AdaptiveGraph<String> graph = new AdaptiveGraph<>();
+        Graph<String> reference = new ConcreteEdgesGraph<>();
+        Random random = new Random(11);
+        boolean sawDense = false;
+        boolean sawSparse = false;
+        for (int i = 0; i < 20_000; i++) {
+            // Phases over a wide and a narrow vocabulary drive both migrations
+            int labels = (i / 4_000) % 2 == 0 ? 400 : 40;
+            String source = "v" + random.nextInt(labels);
+            String target = "v" + random.nextInt(labels);
+            int op = random.nextInt(20);
+            if (op == 0) {
+                assertEquals(reference.remove(source), graph.remove(source));
+            } else if (op < 4) {
+                int weight = random.nextInt(3);
+                assertEquals(reference.set(source, target, weight), graph.set(source, target, weight));
+            } else {
+                int delta = random.nextInt(4) - 1;
+                assertEquals(reference.increment(source, target, delta), graph.increment(source, target, delta));
+            }
+            assertEquals(reference.weight(source, target), graph.weight(source, target));
+            assertEquals(reference.outDegree(source), graph.outDegree(source));
+            assertEquals(reference.inDegree(target), graph.inDegree(target));
+            sawDense |= graph.isDense();
+            sawSparse |= !graph.isDense();
+        }
+        assertTrue(sawDense && sawSparse);
+        assertEquals(reference.vertices(), graph.vertices());
+        for (String vertex : reference.vertices()) {
+            assertEquals(reference.targets(vertex), graph.targets(vertex));
+            assertEquals(reference.sources(vertex), graph.sources(vertex));
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package graph;
 
 import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 public class ConcreteEdgesGraphTest {
@@ -30,13 +37,95 @@ public class ConcreteEdgesGraphTest {
 
     @Test
     public void testSetEdge() {
-        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
         graph.add("A");
         graph.add("B");
         assertEquals(0, graph.set("A", "B", 5));
         assertEquals(5, graph.targets("A").get("B").intValue());
     }
 
+    @Test
+    public void testRemoveVertexRemovesIncidentEdges() {
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "B", 3);
+        graph.set("B", "B", 4);
+        assertTrue(graph.remove("B"));
+        assertTrue(graph.targets("A").isEmpty());
+        assertTrue(graph.sources("C").isEmpty());
+        assertTrue(graph.targets("C").isEmpty());
+        assertEquals(2, graph.vertices().size());
+    }
+
+    @Test
+    public void testSourcesAndTargetsIndexes() {
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("A", "C", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "D", 3);
+        assertEquals(2, graph.set("B", "C", 0));
+        assertEquals(Collections.singletonMap("A", 1), graph.sources("C"));
+        assertEquals(Collections.singletonMap("D", 3), graph.targets("C"));
+    }
+
+    @Test
+    public void testNeighborIterationAndDegrees() {
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 2);
+        graph.set("C", "B", 3);
+        Map<String, Integer> visited = new LinkedHashMap<>();
+        graph.forEachTarget("A", visited::put);
+        assertEquals(graph.targets("A"), visited);
+        visited.clear();
+        graph.forEachSource("B", visited::put);
+        assertEquals(graph.sources("B"), visited);
+        assertEquals(2, graph.weight("A", "C"));
+        assertEquals(0, graph.weight("C", "A"));
+        assertEquals(0, graph.weight("D", "A"));
+        assertEquals(2, graph.outDegree("A"));
+        assertEquals(2, graph.inDegree("B"));
+        assertEquals(0, graph.inDegree("D"));
+    }
+
+    @Test
+    public void testIncrement() {
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        assertEquals(0, graph.increment("A", "B", -1));
+        assertTrue(graph.vertices().isEmpty());
+        assertEquals(1, graph.increment("A", "B", 1));
+        assertEquals(3, graph.increment("A", "B", 2));
+        assertEquals(Integer.valueOf(3), graph.sources("B").get("A"));
+        assertEquals(0, graph.increment("A", "B", -5));
+        assertTrue(graph.targets("A").isEmpty());
+        assertTrue(graph.sources("B").isEmpty());
+        assertEquals(Set.of("A", "B"), graph.vertices());
+    }
+
+    @Test
+    public void testIncrementAll() {
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        graph.incrementAll(List.of(new EdgeDelta<>("A", "B", 1), new EdgeDelta<>("B", "C", 2),
+                new EdgeDelta<>("A", "B", 3)));
+        assertEquals(4, graph.weight("A", "B"));
+        assertEquals(2, graph.weight("B", "C"));
+    }
+
+    @Test
+    public void testRemoveUnlinksBothIndexes() {
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("A", "B", 1);
+        graph.set("C", "A", 2);
+        graph.set("A", "A", 3);
+        graph.set("C", "B", 4);
+        assertTrue(graph.remove("A"));
+        assertEquals(Map.of("C", 4), graph.sources("B"));
+        assertEquals(Map.of("B", 4), graph.targets("C"));
+        assertEquals(0, graph.weight("C", "A"));
+        assertFalse(graph.remove("A"));
+    }
+
     @Test
     public void testGraphToString() {
         ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
@@ -1,6 +1,13 @@
 package graph;
 
 import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 public class ConcreteVerticesGraphTest {
@@ -48,6 +55,79 @@ public class ConcreteVerticesGraphTest {
         assertEquals(Integer.valueOf(5), graph.targets("A").get("B"));
     }
 
+    @Test
+    public void testVertexSetSource() {
+        Vertex<String> vertex = new Vertex<>("B");
+        assertEquals(0, vertex.setSource("A", 5));
+        assertEquals(5, vertex.getSourceWeight("A"));
+        assertEquals(5, vertex.setSource("A", 0));
+        assertTrue(vertex.getSources().isEmpty());
+    }
+
+    @Test
+    public void testRemoveVertexRemovesIncidentEdges() {
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("B", "B", 3);
+        assertTrue(graph.remove("B"));
+        assertTrue(graph.targets("A").isEmpty());
+        assertTrue(graph.sources("C").isEmpty());
+        assertEquals(2, graph.vertices().size());
+    }
+
+    @Test
+    public void testSources() {
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("A", "C", 1);
+        graph.set("B", "C", 2);
+        assertEquals(1, graph.set("A", "C", 0));
+        assertEquals(Collections.singletonMap("B", 2), graph.sources("C"));
+    }
+
+    @Test
+    public void testNeighborIterationAndDegrees() {
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 2);
+        graph.set("C", "B", 3);
+        Map<String, Integer> visited = new LinkedHashMap<>();
+        graph.forEachTarget("A", visited::put);
+        assertEquals(graph.targets("A"), visited);
+        visited.clear();
+        graph.forEachSource("B", visited::put);
+        assertEquals(graph.sources("B"), visited);
+        assertEquals(2, graph.weight("A", "C"));
+        assertEquals(0, graph.weight("C", "A"));
+        assertEquals(0, graph.weight("D", "A"));
+        assertEquals(2, graph.outDegree("A"));
+        assertEquals(2, graph.inDegree("B"));
+        assertEquals(0, graph.inDegree("D"));
+    }
+
+    @Test
+    public void testIncrement() {
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        assertEquals(0, graph.increment("A", "B", -1));
+        assertTrue(graph.vertices().isEmpty());
+        assertEquals(1, graph.increment("A", "B", 1));
+        assertEquals(3, graph.increment("A", "B", 2));
+        assertEquals(Integer.valueOf(3), graph.sources("B").get("A"));
+        assertEquals(0, graph.increment("A", "B", -5));
+        assertTrue(graph.targets("A").isEmpty());
+        assertTrue(graph.sources("B").isEmpty());
+        assertEquals(Set.of("A", "B"), graph.vertices());
+    }
+
+    @Test
+    public void testIncrementAll() {
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.incrementAll(List.of(new EdgeDelta<>("A", "B", 1), new EdgeDelta<>("B", "C", 2),
+                new EdgeDelta<>("A", "B", 3)));
+        assertEquals(4, graph.weight("A", "B"));
+        assertEquals(2, graph.weight("B", "C"));
+    }
+
     @Test
     public void testGraphToString() {
         ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
@@ -0,0 +1,102 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+
+    private static final int THREADS = 8;
+
+    @Override
+    public Graph<String> emptyInstance() {
+        return new ConcurrentGraph<>();
+    }
+
+    @Test
+    public void testRemoveVertexRemovesIncidentEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("B", "B", 3);
+        assertTrue(graph.remove("B"));
+        assertTrue(graph.targets("A").isEmpty());
+        assertTrue(graph.sources("C").isEmpty());
+        assertEquals(2, graph.vertices().size());
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws Exception {
+        Graph<String> graph = emptyInstance();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        graph.increment("w" + (i % 10), "w" + (i % 7), 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        int total = 0;
+        for (String source : graph.vertices()) {
+            for (String target : graph.targets(source).keySet()) {
+                assertEquals(graph.weight(source, target), graph.sources(target).get(source).intValue());
+                total += graph.weight(source, target);
+            }
+        }
+        assertEquals(THREADS * 10_000, total);
+    }
+
+    @Test
+    public void testConcurrentSetAndRemove() throws Exception {
+        Graph<String> graph = emptyInstance();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        String source = "v" + ((i + thread) % 13);
+                        String target = "v" + (i % 11);
+                        if (i % 5 == thread % 5) {
+                            graph.remove(target);
+                        } else {
+                            graph.set(source, target, i + 1);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        for (String source : graph.vertices()) {
+            for (String target : graph.targets(source).keySet()) {
+                assertTrue(graph.vertices().contains(target));
+                assertEquals(graph.weight(source, target), graph.sources(target).get(source).intValue());
+            }
+        }
+    }
+}
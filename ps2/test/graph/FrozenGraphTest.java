@@ -0,0 +1,123 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class FrozenGraphTest {
+
+    private Graph<String> sampleGraph() {
+        Graph<String> graph = Graph.empty();
+        graph.set("A", "B", 3);
+        graph.set("A", "C", 4);
+        graph.set("C", "B", 5);
+        graph.set("B", "B", 1);
+        graph.add("D");
+        return graph;
+    }
+
+    @Test
+    public void testFreezeCopiesVerticesAndEdges() {
+        Graph<String> graph = sampleGraph();
+        FrozenGraph<String> frozen = FrozenGraph.freeze(graph);
+        assertEquals(graph.vertices(), frozen.vertices());
+        for (String vertex : graph.vertices()) {
+            assertEquals(graph.targets(vertex), new HashMap<>(frozen.targets(vertex)));
+            assertEquals(graph.sources(vertex), new HashMap<>(frozen.sources(vertex)));
+        }
+    }
+
+    @Test
+    public void testFreezeIsIndependentOfOriginal() {
+        Graph<String> graph = sampleGraph();
+        FrozenGraph<String> frozen = FrozenGraph.freeze(graph);
+        graph.set("A", "B", 0);
+        graph.remove("C");
+        assertEquals(Integer.valueOf(3), frozen.targets("A").get("B"));
+        assertEquals(Set.of("A", "B", "C", "D"), frozen.vertices());
+    }
+
+    @Test
+    public void testViewLookups() {
+        FrozenGraph<String> frozen = FrozenGraph.freeze(sampleGraph());
+        Map<String, Integer> sources = frozen.sources("B");
+        assertEquals(3, sources.size());
+        assertTrue(sources.containsKey("C"));
+        assertFalse(sources.containsKey("D"));
+        assertNull(sources.get("E"));
+        assertEquals(Collections.emptyMap(), frozen.targets("D"));
+        assertEquals(Collections.emptyMap(), frozen.targets("E"));
+    }
+
+    @Test
+    public void testNeighborIterationAndDegrees() {
+        Graph<String> graph = sampleGraph();
+        FrozenGraph<String> frozen = FrozenGraph.freeze(graph);
+        for (String vertex : graph.vertices()) {
+            Map<String, Integer> visited = new HashMap<>();
+            frozen.forEachTarget(vertex, visited::put);
+            assertEquals(graph.targets(vertex), visited);
+            visited.clear();
+            frozen.forEachSource(vertex, visited::put);
+            assertEquals(graph.sources(vertex), visited);
+            assertEquals(graph.outDegree(vertex), frozen.outDegree(vertex));
+            assertEquals(graph.inDegree(vertex), frozen.inDegree(vertex));
+            for (String other : graph.vertices()) {
+                assertEquals(graph.weight(vertex, other), frozen.weight(vertex, other));
+            }
+        }
+        assertEquals(0, frozen.weight("A", "E"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetUnsupported() {
+        FrozenGraph.freeze(sampleGraph()).set("A", "D", 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewUnmodifiable() {
+        FrozenGraph.freeze(sampleGraph()).targets("A").put("D", 1);
+    }
+
+    @Test
+    public void testEdgesSplitEvenly() {
+        Graph<String> graph = Graph.empty();
+        Random random = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            // Vertices v0..v99 have most edges, and many vertices have none
+            String source = "v" + (random.nextBoolean() ? random.nextInt(100) : random.nextInt(3_000));
+            graph.increment(source, "v" + random.nextInt(3_000), 1 + random.nextInt(5));
+        }
+        graph.add("isolated");
+        FrozenGraph<String> frozen = FrozenGraph.freeze(graph);
+        Set<Edge<String>> expected = graph.edges().collect(Collectors.toSet());
+
+        Spliterator<Edge<String>> edges = frozen.edges().spliterator();
+        assertTrue(edges.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(expected.size(), edges.getExactSizeIfKnown());
+        Spliterator<Edge<String>> prefix = edges.trySplit();
+        assertNotNull(prefix);
+        assertTrue(Math.abs(prefix.estimateSize() - edges.estimateSize()) <= 1);
+
+        List<Edge<String>> split = new ArrayList<>();
+        prefix.forEachRemaining(split::add);
+        while (edges.tryAdvance(split::add)) {
+            // collect one at a time
+        }
+        assertEquals(expected.size(), split.size());
+        assertEquals(expected, new HashSet<>(split));
+        assertEquals(frozen.edges().collect(Collectors.toList()),
+                frozen.edges().parallel().collect(Collectors.toList()));
+    }
+}
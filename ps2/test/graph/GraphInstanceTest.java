@@ -2,7 +2,9 @@ package graph;
 
 import static org.junit.Assert.*;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 /**
@@ -94,4 +96,36 @@ public abstract class GraphInstanceTest {
         Set<String> targets = graph.targets("A").keySet();
         assertEquals("expected targets of A to be B and C", Set.of("B", "C"), targets);
     }
+    
+    @Test
+    public void testEdges() {
+        Graph<String> graph = emptyInstance();
+        assertEquals("expected new graph to have no edges", 0, graph.edges().count());
+        graph.set("A", "B", 3);
+        graph.set("A", "C", 4);
+        graph.set("C", "B", 5);
+        graph.set("B", "B", 1);
+        graph.set("C", "A", 2);
+        graph.set("C", "A", 0);
+        graph.add("D");
+        Set<Edge<String>> expected = Set.of(new Edge<>("A", "B", 3), new Edge<>("A", "C", 4),
+                new Edge<>("C", "B", 5), new Edge<>("B", "B", 1));
+        assertEquals("expected every edge once", expected, graph.edges().collect(Collectors.toSet()));
+        assertEquals("expected four edges", 4, graph.edges().count());
+        assertEquals("expected parallel sum of weights", 13, graph.edges().parallel().mapToInt(Edge::weight).sum());
+    }
+
+    @Test
+    public void testIncrementAllNegativeDeltas() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 5);
+        graph.set("B", "C", 2);
+        graph.incrementAll(List.of(new EdgeDelta<>("A", "B", -2), new EdgeDelta<>("B", "C", -3),
+                new EdgeDelta<>("C", "A", 0), new EdgeDelta<>("C", "A", -1), new EdgeDelta<>("A", "C", 4)));
+        assertEquals("expected A -> B to be decremented", 3, graph.weight("A", "B"));
+        assertEquals("expected B -> C to be removed", 0, graph.weight("B", "C"));
+        assertEquals("expected no edge C -> A", 0, graph.weight("C", "A"));
+        assertEquals("expected A -> C to be added", 4, graph.weight("A", "C"));
+        assertEquals("expected no new vertices", Set.of("A", "B", "C"), graph.vertices());
+    }
 }
@@ -0,0 +1,100 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import graph.GraphMetrics.Operation;
+
+/**
+ * Tests for InstrumentedGraph, which must behave as the graph it wraps, and
+ * for the GraphMetrics it records in.
+ */
+public class InstrumentedGraphTest extends GraphInstanceTest {
+
+    @Override
+    public Graph<String> emptyInstance() {
+        return new InstrumentedGraph<>(Graph.empty(), new GraphMetrics());
+    }
+
+    @Test
+    public void testCountsCallsPerOperation() {
+        GraphMetrics metrics = new GraphMetrics();
+        Graph<String> graph = new InstrumentedGraph<>(Graph.empty(), metrics);
+        graph.set("a", "b", 2);
+        graph.set("b", "c", 1);
+        graph.increment("a", "b", 1);
+        graph.targets("a");
+        graph.sources("b");
+        graph.forEachTarget("a", (target, weight) -> { });
+        graph.remove("c");
+        assertEquals(2, metrics.calls(Operation.SET));
+        assertEquals(1, metrics.calls(Operation.INCREMENT));
+        assertEquals(1, metrics.calls(Operation.TARGETS));
+        assertEquals(1, metrics.calls(Operation.SOURCES));
+        assertEquals(1, metrics.calls(Operation.FOR_EACH_TARGET));
+        assertEquals(1, metrics.calls(Operation.REMOVE));
+        assertEquals(0, metrics.calls(Operation.WEIGHT));
+        assertEquals(Long.valueOf(2), metrics.getCalls().get("SET"));
+        assertEquals(Operation.values().length, metrics.getP99Micros().size());
+    }
+
+    @Test
+    public void testRecordsCallsThatThrow() {
+        GraphMetrics metrics = new GraphMetrics();
+        Graph<String> graph = new InstrumentedGraph<>(FrozenGraph.freeze(Graph.empty()), metrics);
+        try {
+            graph.add("a");
+            fail("expected a frozen graph to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(1, metrics.calls(Operation.ADD));
+    }
+
+    @Test
+    public void testViewsShareMetrics() {
+        GraphMetrics metrics = new GraphMetrics();
+        Graph<String> graph = Graph.empty();
+        new InstrumentedGraph<>(graph, metrics).add("a");
+        new InstrumentedGraph<>(graph, metrics).add("b");
+        assertEquals(2, metrics.calls(Operation.ADD));
+        assertEquals(2, graph.vertices().size());
+    }
+
+    @Test
+    public void testEdgeCountAndHeapEstimate() {
+        Graph<String> graph = Graph.empty();
+        assertEquals(0, GraphMetrics.edgeCount(graph));
+        assertEquals(0, GraphMetrics.estimatedHeapBytes(graph));
+        graph.set("a", "b", 2);
+        graph.set("b", "a", 1);
+        graph.set("b", "c", 1);
+        assertEquals(3, GraphMetrics.edgeCount(graph));
+        long threeVertices = GraphMetrics.estimatedHeapBytes(graph);
+        graph.add("d");
+        assertTrue(GraphMetrics.estimatedHeapBytes(graph) > threeVertices);
+    }
+
+    @Test
+    public void testExportedAsMXBean() throws Exception {
+        GraphMetrics metrics = new GraphMetrics();
+        new InstrumentedGraph<>(Graph.<String>empty(), metrics).set("a", "b", 1);
+        ObjectName name = new ObjectName("graph.test:type=GraphMetrics");
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+        try {
+            GraphMetricsMXBean proxy = JMX.newMXBeanProxy(
+                    ManagementFactory.getPlatformMBeanServer(), name, GraphMetricsMXBean.class);
+            Map<String, Long> calls = proxy.getCalls();
+            assertEquals(Long.valueOf(1), calls.get("SET"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ObjectIntMapTest {
+
+    /*
+     * Testing strategy:
+     *   put(): new key, existing key
+     *   add(): new key with positive or non-positive delta, existing key
+     *          staying positive or dropping to zero or below
+     *   remove(): present, absent, last entry
+     *   order: insertion order kept across removals and growth
+     *   keys that collide in the index
+     */
+
+    @Test
+    public void testPutGetRemove() {
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        assertEquals(0, map.get("a"));
+        assertEquals(0, map.put("a", 3));
+        assertEquals(3, map.put("a", 5));
+        assertEquals(5, map.get("a"));
+        assertEquals(1, map.size());
+        assertEquals(0, map.remove("b"));
+        assertEquals(5, map.remove("a"));
+        assertEquals(0, map.size());
+        assertEquals(0, map.get("a"));
+    }
+
+    @Test
+    public void testAdd() {
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        assertEquals(0, map.add("a", -1));
+        assertEquals(0, map.size());
+        assertEquals(2, map.add("a", 2));
+        assertEquals(5, map.add("a", 3));
+        assertEquals(0, map.add("a", -5));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testInsertionOrderAndToString() {
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        map.put("c", 1);
+        map.put("a", 2);
+        map.put("b", 3);
+        map.remove("a");
+        map.put("a", 4);
+        map.put("c", 5);
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("c", 5);
+        expected.put("b", 3);
+        expected.put("a", 4);
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.toMap().entrySet()));
+        assertEquals(expected.toString(), map.toString());
+    }
+
+    /** A key whose hash codes collide in small groups. */
+    private static final class Key {
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            return that instanceof Key && ((Key) that).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id / 4;
+        }
+    }
+
+    @Test
+    public void testMatchesLinkedHashMapUnderRandomUpdates() {
+        ObjectIntMap<Key> map = new ObjectIntMap<>();
+        Map<Key, Integer> expected = new LinkedHashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 20000; step++) {
+            Key key = new Key(random.nextInt(200));
+            int delta = random.nextInt(7) - 3;
+            int previous = expected.getOrDefault(key, 0);
+            if (previous + delta > 0) {
+                expected.put(key, previous + delta);
+            } else {
+                expected.remove(key);
+            }
+            assertEquals(expected.getOrDefault(key, 0).intValue(), map.add(key, delta));
+            assertEquals(expected.size(), map.size());
+        }
+        List<Key> order = new ArrayList<>();
+        map.forEach((key, value) -> {
+            order.add(key);
+            assertEquals(expected.get(key).intValue(), value);
+        });
+        assertEquals(new ArrayList<>(expected.keySet()), order);
+    }
+}
@@ -0,0 +1,171 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for OffHeapGraph, with chunks small enough that even modest graphs
+ * span several of them.
+ */
+public class OffHeapGraphTest extends GraphInstanceTest {
+    private static final int CHUNK = 1 << 12;
+
+    @Override
+    public Graph<String> emptyInstance() {
+        return OffHeapGraph.direct(LabelCodec.utf8(), CHUNK);
+    }
+
+    /*
+     * Apply the same random updates to graph and to a ConcreteEdgesGraph,
+     * checking they agree after each one.
+     */
+    private static void assertSameAsReference(Graph<String> graph, int steps, int labels, long seed) {
+        Graph<String> reference = new ConcreteEdgesGraph<>();
+        Random random = new Random(seed);
+        for (int i = 0; i < steps; i++) {
+            String source = "v" + random.nextInt(labels);
+            String target = "v" + random.nextInt(labels);
+            switch (random.nextInt(10)) {
+            case 0:
+                assertEquals(reference.remove(source), graph.remove(source));
+                break;
+            case 1:
+                assertEquals(reference.add(source), graph.add(source));
+                break;
+            case 2:
+            case 3:
+                int weight = random.nextInt(4);
+                assertEquals(reference.set(source, target, weight), graph.set(source, target, weight));
+                break;
+            default:
+                int delta = random.nextInt(5) - 1;
+                assertEquals(reference.increment(source, target, delta), graph.increment(source, target, delta));
+                break;
+            }
+            assertEquals(reference.weight(source, target), graph.weight(source, target));
+            assertEquals(reference.targets(source), graph.targets(source));
+            assertEquals(reference.sources(target), graph.sources(target));
+        }
+        assertEquals(reference.vertices(), graph.vertices());
+        for (String vertex : reference.vertices()) {
+            assertEquals(reference.targets(vertex), graph.targets(vertex));
+            assertEquals(reference.sources(vertex), graph.sources(vertex));
+            assertEquals(reference.outDegree(vertex), graph.outDegree(vertex));
+            assertEquals(reference.inDegree(vertex), graph.inDegree(vertex));
+        }
+    }
+
+    @Test
+    public void testMatchesReferenceAcrossChunks() {
+        OffHeapGraph<String> graph = OffHeapGraph.direct(LabelCodec.utf8(), CHUNK);
+        assertSameAsReference(graph, 20_000, 1_500, 1);
+        assertTrue("expected several chunks", graph.offHeapBytes() > 8 * CHUNK);
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        Path file = Files.createTempFile("offheap", ".graph");
+        try (OffHeapGraph<String> graph = OffHeapGraph.mapped(file, LabelCodec.utf8(), CHUNK)) {
+            assertSameAsReference(graph, 5_000, 500, 2);
+            assertEquals(graph.offHeapBytes(), Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testTargetsInInsertionOrder() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "c", 1);
+        graph.set("a", "b", 2);
+        graph.set("a", "d", 3);
+        graph.set("a", "b", 0);
+        graph.set("a", "b", 4);
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("c", 1);
+        expected.put("d", 3);
+        expected.put("b", 4);
+        assertEquals(Arrays.asList("c", "d", "b"), Arrays.asList(graph.targets("a").keySet().toArray()));
+        assertEquals(expected, graph.targets("a"));
+    }
+
+    @Test
+    public void testReusesRemovedRecords() {
+        OffHeapGraph<String> graph = OffHeapGraph.direct(LabelCodec.utf8(), CHUNK);
+        for (int i = 0; i < 2_000; i++) {
+            graph.set("a", "b" + i, 1);
+        }
+        long bytes = graph.offHeapBytes();
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 2_000; i++) {
+                graph.set("a", "b" + i, 0);
+            }
+            for (int i = 0; i < 2_000; i++) {
+                graph.set("a", "b" + i, round + 1);
+            }
+        }
+        assertEquals("edge records should be reused", bytes, graph.offHeapBytes());
+        assertEquals(2_000, graph.edgeCount());
+        assertEquals(2_000, graph.outDegree("a"));
+    }
+
+    @Test
+    public void testVerticesIsLiveUnmodifiableView() {
+        Graph<String> graph = emptyInstance();
+        Set<String> vertices = graph.vertices();
+        graph.add("x");
+        graph.set("y", "z", 1);
+        assertEquals(3, vertices.size());
+        assertTrue(vertices.contains("z"));
+        assertFalse(vertices.contains(1));
+        graph.remove("y");
+        assertEquals(2, vertices.size());
+        try {
+            vertices.remove("x");
+            fail("expected the view to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNonAsciiAndCustomCodec() {
+        Graph<String> strings = emptyInstance();
+        strings.set("caf\u00e9", "na\u00efve", 2);
+        assertEquals(2, strings.weight("caf\u00e9", "na\u00efve"));
+        assertEquals(0, strings.weight("cafe", "na\u00efve"));
+
+        LabelCodec<Integer> ints = new LabelCodec<Integer>() {
+            @Override
+            public byte[] encode(Integer label) {
+                return ByteBuffer.allocate(Integer.BYTES).putInt(label).array();
+            }
+
+            @Override
+            public Integer decode(ByteBuffer bytes) {
+                return bytes.getInt();
+            }
+        };
+        Graph<Integer> graph = OffHeapGraph.direct(ints, CHUNK);
+        graph.set(1, 2, 5);
+        graph.set(2, 1, 6);
+        assertEquals(5, graph.weight(1, 2));
+        assertEquals(Map.of(2, 6), graph.sources(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsBadChunkSize() {
+        OffHeapGraph.direct(LabelCodec.utf8(), 5000);
+    }
+}
@@ -0,0 +1,77 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentMapTest {
+
+    /*
+     * Testing strategy:
+     *   put(): new key, existing key with same or new value
+     *   remove(): present, absent, last key
+     *   keys with equal hash codes
+     *   old maps unchanged by later updates
+     */
+
+    @Test
+    public void testPutGetRemove() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        PersistentMap<String, Integer> one = empty.put("a", 1);
+        assertEquals(0, empty.size());
+        assertNull(empty.get("a"));
+        assertEquals(1, one.size());
+        assertEquals(Integer.valueOf(1), one.get("a"));
+        assertSame(one, one.remove("b"));
+        assertEquals(0, one.remove("a").size());
+        assertEquals(Integer.valueOf(1), one.get("a"));
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        // "Aa" and "BB" have the same hash code
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty()
+                .put("Aa", 1).put("BB", 2).put("AaAa", 3).put("BBBB", 4);
+        assertEquals(4, map.size());
+        assertEquals(Integer.valueOf(2), map.get("BB"));
+        PersistentMap<String, Integer> removed = map.remove("Aa");
+        assertNull(removed.get("Aa"));
+        assertEquals(Integer.valueOf(2), removed.get("BB"));
+        assertEquals(Integer.valueOf(1), map.get("Aa"));
+        assertEquals(new HashSet<>(map.keys()), Map.of("Aa", 1, "BB", 2, "AaAa", 3, "BBBB", 4).keySet());
+    }
+
+    @Test
+    public void testMatchesHashMapUnderRandomUpdates() {
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> halfway = null;
+        Map<Integer, Integer> expectedHalfway = null;
+        Random random = new Random(7);
+        for (int step = 0; step < 20000; step++) {
+            int key = random.nextInt(3000) * (random.nextBoolean() ? 1 : 1 << 20);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, step);
+                expected.put(key, step);
+            }
+            if (step == 10000) {
+                halfway = map;
+                expectedHalfway = new HashMap<>(expected);
+            }
+        }
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), map.size());
+        Map<Integer, Integer> actualHalfway = new HashMap<>();
+        halfway.forEach(actualHalfway::put);
+        assertEquals(expectedHalfway, actualHalfway);
+    }
+}
@@ -0,0 +1,194 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+/**
+ * Tests for ShardedGraph.
+ */
+public class ShardedGraphTest extends GraphInstanceTest {
+
+    @Override
+    public Graph<String> emptyInstance() {
+        return new ShardedGraph<>(4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoShards() {
+        new ShardedGraph<String>(0);
+    }
+
+    @Test
+    public void testShardOfIsStableAndInRange() {
+        ShardedGraph<String> graph = new ShardedGraph<>(7);
+        ShardedGraph<String> other = new ShardedGraph<>(7);
+        for (int i = 0; i < 1000; i++) {
+            int shard = graph.shardOf("v" + i);
+            assertTrue(shard >= 0 && shard < graph.shardCount());
+            assertEquals(shard, other.shardOf("v" + i));
+        }
+    }
+
+    @Test
+    public void testEdgesAcrossShards() {
+        ShardedGraph<String> graph = new ShardedGraph<>(8);
+        for (int i = 0; i < 50; i++) {
+            graph.set("hub", "v" + i, i + 1);
+            graph.set("v" + i, "hub", i + 1);
+        }
+        assertEquals(51, graph.vertices().size());
+        assertEquals(50, graph.sources("hub").size());
+        assertEquals(50, graph.inDegree("hub"));
+        assertEquals(100, graph.edgeCount());
+        assertEquals(Integer.valueOf(7), graph.sources("hub").get("v6"));
+
+        assertTrue(graph.remove("hub"));
+        assertEquals(50, graph.vertices().size());
+        assertEquals(0, graph.edgeCount());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(graph.targets("v" + i).isEmpty());
+        }
+        assertTrue(graph.add("hub"));
+    }
+
+    @Test
+    public void testMatchesReference() {
+        Graph<String> graph = new ShardedGraph<>(5);
+        Graph<String> reference = new ConcreteEdgesGraph<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5_000; i++) {
+            String source = "v" + random.nextInt(200);
+            String target = "v" + random.nextInt(200);
+            switch (random.nextInt(10)) {
+            case 0:
+                assertEquals(reference.remove(source), graph.remove(source));
+                break;
+            case 1:
+                assertEquals(reference.set(source, target, 0), graph.set(source, target, 0));
+                break;
+            default:
+                int delta = random.nextInt(5) - 1;
+                assertEquals(reference.increment(source, target, delta), graph.increment(source, target, delta));
+                break;
+            }
+        }
+        assertEquals(reference.vertices(), graph.vertices());
+        for (String vertex : reference.vertices()) {
+            assertEquals(reference.targets(vertex), graph.targets(vertex));
+            assertEquals(reference.sources(vertex), graph.sources(vertex));
+            assertEquals(reference.inDegree(vertex), graph.inDegree(vertex));
+        }
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        ShardedGraph<String> graph = new ShardedGraph<>(4);
+        int threads = 4;
+        int rounds = 2_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    graph.increment("v" + (i % 20), "v" + (i % 7), 1);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long total = 0;
+        for (String vertex : graph.vertices()) {
+            for (Map.Entry<String, Integer> edge : graph.targets(vertex).entrySet()) {
+                total += edge.getValue();
+            }
+        }
+        assertEquals((long) threads * rounds, total);
+    }
+
+    /*
+     * Find labels owned by the given shard.
+     */
+    private static List<String> labelsIn(ShardedGraph<String> graph, int shard, int count) {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; labels.size() < count; i++) {
+            if (graph.shardOf("v" + i) == shard) {
+                labels.add("v" + i);
+            }
+        }
+        return labels;
+    }
+
+    @Test
+    public void testRemovePrunesGhosts() {
+        ShardedGraph<String> graph = new ShardedGraph<>(2);
+        String s = labelsIn(graph, 0, 1).get(0);
+        List<String> targets = labelsIn(graph, 1, 2);
+        graph.set(s, targets.get(0), 3);
+        graph.set(s, targets.get(1), 1);
+        graph.set(targets.get(0), s, 2);
+        assertEquals(3, graph.ghostCount());
+
+        assertTrue(graph.remove(s));
+        assertEquals(0, graph.ghostCount());
+        assertEquals(0, graph.edgeCount());
+        assertEquals(0, graph.inDegree(targets.get(0)));
+        assertEquals(2, graph.vertices().size());
+    }
+
+    @Test
+    public void testForEachTargetActionMayReadOtherShards() throws Exception {
+        ShardedGraph<String> graph = new ShardedGraph<>(2);
+        String s0 = labelsIn(graph, 0, 1).get(0);
+        String s1 = labelsIn(graph, 1, 1).get(0);
+        graph.set(s1, s0, 1);
+        CountDownLatch visiting = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<Integer> reader = executor.submit(() -> {
+                int[] seen = new int[1];
+                graph.forEachTarget(s1, (target, weight) -> {
+                    visiting.countDown();
+                    try {
+                        // Give the writer time to lock both shards if it can
+                        written.await(500, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    seen[0] = graph.weight(s0, s1);
+                });
+                return seen[0];
+            });
+            Future<?> writer = executor.submit(() -> {
+                visiting.await();
+                graph.set(s0, s1, 5);
+                written.countDown();
+                return null;
+            });
+            writer.get(5, TimeUnit.SECONDS);
+            assertEquals(5, (int) reader.get(5, TimeUnit.SECONDS));
+        } catch (TimeoutException e) {
+            fail("reader and writer deadlocked");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
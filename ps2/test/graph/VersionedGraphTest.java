@@ -0,0 +1,159 @@
+package graph;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class VersionedGraphTest {
+
+    /*
+     * Testing strategy:
+     *   update(): adds, reweights and removes edges and vertices; throws
+     *   versions: earlier versions unchanged by later updates; numbering;
+     *             retention of old versions
+     *   constructor: from an empty graph, a populated graph, or a Version
+     *   Version: mutators throw
+     */
+
+    @Test
+    public void testUpdatePublishesNewVersion() {
+        VersionedGraph<String> graph = new VersionedGraph<>(2);
+        VersionedGraph.Version<String> empty = graph.current();
+        assertEquals(0, empty.number());
+
+        VersionedGraph.Version<String> next = graph.update(draft -> {
+            draft.set("a", "b", 2);
+            draft.increment("b", "c", 3);
+            assertEquals(2, draft.weight("a", "b"));
+        });
+        assertSame(next, graph.current());
+        assertEquals(1, next.number());
+        assertEquals(Set.of("a", "b", "c"), next.vertices());
+        assertEquals(Map.of("b", 2), next.targets("a"));
+        assertEquals(Map.of("b", 3), next.sources("c"));
+        assertEquals(Collections.emptySet(), empty.vertices());
+    }
+
+    @Test
+    public void testEarlierVersionsAreUnchanged() {
+        VersionedGraph<String> graph = new VersionedGraph<>(1);
+        VersionedGraph.Version<String> first = graph.update(draft -> {
+            draft.set("a", "b", 1);
+            draft.set("b", "c", 1);
+        });
+        VersionedGraph.Version<String> second = graph.update(draft -> {
+            draft.increment("a", "b", 4);
+            draft.remove("c");
+            draft.set("a", "d", 7);
+        });
+        assertEquals(1, first.weight("a", "b"));
+        assertEquals(1, first.weight("b", "c"));
+        assertEquals(Set.of("a", "b", "c"), first.vertices());
+        assertEquals(5, second.weight("a", "b"));
+        assertEquals(0, second.outDegree("b"));
+        assertEquals(Set.of("a", "b", "d"), second.vertices());
+        assertEquals(Map.of("b", 5, "d", 7), second.targets("a"));
+    }
+
+    @Test
+    public void testRemovedEdgeInLaterVersion() {
+        VersionedGraph<String> graph = new VersionedGraph<>(1);
+        VersionedGraph.Version<String> first = graph.update(draft -> draft.set("a", "b", 3));
+        VersionedGraph.Version<String> second = graph.update(draft -> {
+            assertEquals(3, draft.set("a", "b", 0));
+            assertEquals(0, draft.set("x", "y", 0));
+        });
+        assertEquals(3, first.weight("a", "b"));
+        assertEquals(0, second.weight("a", "b"));
+        assertEquals(0, second.inDegree("b"));
+        assertEquals(Set.of("a", "b"), second.vertices());
+    }
+
+    @Test
+    public void testFailedUpdatePublishesNothing() {
+        VersionedGraph<String> graph = new VersionedGraph<>(1);
+        VersionedGraph.Version<String> first = graph.update(draft -> draft.set("a", "b", 1));
+        try {
+            graph.update(draft -> {
+                draft.set("a", "b", 9);
+                throw new IllegalStateException("abandon");
+            });
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertSame(first, graph.current());
+        assertEquals(1, graph.current().weight("a", "b"));
+    }
+
+    @Test
+    public void testRetention() {
+        VersionedGraph<String> graph = new VersionedGraph<>(2);
+        for (int i = 0; i < 3; i++) {
+            graph.update(draft -> draft.add("v" + draft.vertices().size()));
+        }
+        assertEquals(Optional.empty(), graph.version(1));
+        assertEquals(Set.of("v0", "v1"), graph.version(2).get().vertices());
+        assertSame(graph.current(), graph.version(3).get());
+    }
+
+    @Test
+    public void testStartFromGraph() {
+        Graph<String> initial = Graph.empty();
+        initial.set("a", "b", 2);
+        initial.add("c");
+        VersionedGraph<String> graph = new VersionedGraph<>(initial, 1);
+        assertEquals(Set.of("a", "b", "c"), graph.current().vertices());
+        assertEquals(2, graph.current().weight("a", "b"));
+
+        VersionedGraph.Version<String> shared = graph.update(draft -> draft.set("b", "c", 1));
+        VersionedGraph<String> fork = new VersionedGraph<>(shared, 1);
+        assertSame(shared, fork.current());
+        fork.update(draft -> draft.set("a", "b", 5));
+        assertEquals(2, graph.current().weight("a", "b"));
+        assertEquals(5, fork.current().weight("a", "b"));
+        assertEquals(2, fork.current().number());
+    }
+
+    /*
+     * Add a vertex and an edge a -> b in one update, then remove the vertex
+     * in another that touches nothing else, so the current version shares
+     * the adjacencies of a and b made by the first. Returns the vertex.
+     */
+    private static WeakReference<String> addThenRemove(VersionedGraph<String> graph) {
+        String removed = new String("removed");
+        graph.update(draft -> {
+            draft.add(removed);
+            draft.set("a", "b", 1);
+        });
+        graph.update(draft -> draft.remove(removed));
+        return new WeakReference<>(removed);
+    }
+
+    @Test
+    public void testForgottenVersionIsReclaimed() throws InterruptedException {
+        VersionedGraph<String> graph = new VersionedGraph<>(1);
+        WeakReference<String> removed = addThenRemove(graph);
+        for (int i = 0; i < 50 && removed.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("expected the forgotten version's vertices to be reclaimed", removed.get());
+        assertEquals(1, graph.current().weight("a", "b"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testVersionIsImmutable() {
+        new VersionedGraph<String>(1).current().add("a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoRetention() {
+        new VersionedGraph<String>(0);
+    }
+}
@@ -0,0 +1,145 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BridgeIndexTest {
+
+    @Test
+    public void testComputesOncePerPair() {
+        BridgeIndex index = new BridgeIndex(10);
+        List<String> computed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("b", index.bridge("a", "c", 0, (w1, w2) -> {
+                computed.add(w1 + w2);
+                return "b";
+            }));
+        }
+        assertEquals(List.of("ac"), computed);
+    }
+
+    @Test
+    public void testRemembersMissingBridge() {
+        BridgeIndex index = new BridgeIndex(10);
+        assertNull(index.bridge("a", "c", 0, (w1, w2) -> null));
+        assertNull(index.bridge("a", "c", 0, (w1, w2) -> {
+            throw new AssertionError("should not recompute");
+        }));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        BridgeIndex index = new BridgeIndex(2);
+        index.bridge("a", "b", 0, (w1, w2) -> "x");
+        index.bridge("c", "d", 0, (w1, w2) -> "y");
+        index.bridge("a", "b", 0, (w1, w2) -> "stale");
+        index.bridge("e", "f", 0, (w1, w2) -> "z");
+        assertEquals(2, index.size());
+        assertEquals("x", index.bridge("a", "b", 0, (w1, w2) -> "stale"));
+        assertEquals("fresh", index.bridge("c", "d", 0, (w1, w2) -> "fresh"));
+    }
+
+    @Test
+    public void testChangedRecomputesOnlyAffectedPairs() {
+        BridgeIndex index = new BridgeIndex(10);
+        index.bridge("a", "c", 0, (w1, w2) -> "b");
+        index.bridge("x", "z", 0, (w1, w2) -> "y");
+        index.bridge("x", "c", 0, (w1, w2) -> null);
+        index.changed("a", "q", 1);
+        assertEquals("b2", index.bridge("a", "c", 1, (w1, w2) -> "b2"));
+        assertEquals("y", index.bridge("x", "z", 1, (w1, w2) -> "stale"));
+        index.changed("q", "c", 2);
+        assertEquals("y", index.bridge("x", "z", 2, (w1, w2) -> "stale"));
+        assertEquals("w", index.bridge("x", "c", 2, (w1, w2) -> "w"));
+        assertEquals("b3", index.bridge("a", "c", 2, (w1, w2) -> "b3"));
+        assertEquals("b3", index.bridge("a", "c", 2, (w1, w2) -> "stale"));
+    }
+
+    @Test
+    public void testOlderVersionIsNotAnsweredFromNewerEntry() {
+        BridgeIndex index = new BridgeIndex(10);
+        index.changed("a", "b", 1);
+        assertEquals("new", index.bridge("a", "c", 1, (w1, w2) -> "new"));
+        assertEquals("old", index.bridge("a", "c", 0, (w1, w2) -> "old"));
+        assertEquals("new", index.bridge("a", "c", 1, (w1, w2) -> "stale"));
+        assertEquals("new", index.bridge("a", "c", 2, (w1, w2) -> "stale"));
+    }
+
+    @Test
+    public void testChangeRecordedBeforePublishIsNotCached() {
+        BridgeIndex index = new BridgeIndex(10);
+        index.bridge("a", "c", 0, (w1, w2) -> {
+            index.changed("a", "b", 1);
+            return "old";
+        });
+        assertEquals("new", index.bridge("a", "c", 1, (w1, w2) -> "new"));
+    }
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        BridgeIndex index = new BridgeIndex(10);
+        index.bridge("a", "c", 0, (w1, w2) -> "b");
+        index.bridge("a", "c", 0, (w1, w2) -> "b");
+        index.bridge("a", "c", 0, (w1, w2) -> "b");
+        index.changed("a", "q", 1);
+        index.bridge("a", "c", 1, (w1, w2) -> "b");
+        assertEquals(2, index.hits());
+        assertEquals(2, index.misses());
+    }
+
+    @Test
+    public void testForgetKeepsOtherEntries() {
+        BridgeIndex index = new BridgeIndex(2);
+        index.changed("a", "b", 1);
+        assertEquals("b", index.bridge("a", "c", 1, (w1, w2) -> "b"));
+        assertEquals("r", index.bridge("p", "q", 1, (w1, w2) -> "r"));
+
+        // a -> b expires, leaving a and b out of the graph
+        index.changed("a", "b", 2);
+        index.forget("a", 2);
+        index.forget("b", 2);
+        assertEquals("b2", index.bridge("a", "c", 2, (w1, w2) -> "b2"));
+        assertEquals("r", index.bridge("p", "q", 2, (w1, w2) -> "stale"));
+        assertEquals(2, index.trackedWords());
+    }
+
+    @Test
+    public void testForgetDropsOldestForgottenWords() {
+        BridgeIndex index = new BridgeIndex(2);
+        assertEquals("r", index.bridge("p", "q", 1, (w1, w2) -> "r"));
+        for (int i = 2; i < 100; i++) {
+            index.changed("w" + i, "x" + i, i);
+            index.forget("w" + i, i);
+            index.forget("x" + i, i);
+            assertTrue(index.trackedWords() <= 4);
+        }
+        // Words that are no longer tracked count as changed when the last
+        // dropped word was forgotten
+        assertEquals("r2", index.bridge("p", "q", 99, (w1, w2) -> "r2"));
+        assertEquals("r2", index.bridge("p", "q", 99, (w1, w2) -> "stale"));
+    }
+
+    @Test
+    public void testChangedWordIsNoLongerForgotten() {
+        BridgeIndex index = new BridgeIndex(1);
+        index.changed("a", "b", 1);
+        index.forget("a", 1);
+        index.changed("a", "c", 2);
+        index.changed("x", "y", 3);
+        index.forget("x", 3);
+        index.forget("y", 3);
+        // x was dropped to make room for y, but a is back in the graph: a and
+        // b, c, y are still tracked
+        assertEquals(4, index.trackedWords());
+        assertEquals("d", index.bridge("a", "d", 3, (w1, w2) -> "d"));
+        assertEquals("d", index.bridge("a", "d", 3, (w1, w2) -> "stale"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveCapacity() {
+        new BridgeIndex(0);
+    }
+}
@@ -0,0 +1,40 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BridgeMemoTest {
+
+    @Test
+    public void testComputesOncePerPair() {
+        List<String> computed = new ArrayList<>();
+        BridgeMemo memo = new BridgeMemo(10, (w1, w2) -> {
+            computed.add(w1 + w2);
+            return w1.equals("a") ? "b" : null;
+        });
+        for (int i = 0; i < 3; i++) {
+            assertEquals("b", memo.bridge("a", "c"));
+            assertNull(memo.bridge("x", "z"));
+        }
+        assertEquals(List.of("ac", "xz"), computed);
+        assertEquals(2, memo.size());
+    }
+
+    @Test
+    public void testStopsRememberingAtCapacity() {
+        List<String> computed = new ArrayList<>();
+        BridgeMemo memo = new BridgeMemo(1, (w1, w2) -> {
+            computed.add(w1 + w2);
+            return "b";
+        });
+        memo.bridge("a", "c");
+        memo.bridge("x", "z");
+        memo.bridge("x", "z");
+        memo.bridge("a", "c");
+        assertEquals(List.of("ac", "xz", "xz"), computed);
+        assertEquals(1, memo.size());
+    }
+}
@@ -3,9 +3,25 @@ package poet;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 public class GraphPoetTest {
 
@@ -57,5 +73,382 @@ public class GraphPoetTest {
         String expected = "Hello, world!";
         assertEquals(expected, poet.poem(input));
     }
+
+    @Test
+    public void testReaderAndStreamCorpora() throws IOException {
+        String text = "To explore strange new worlds\nTo seek out new life and new civilizations";
+        String input = "Seek to explore new and exciting synergies!";
+        String expected = new GraphPoet(createCorpusFile(text)).poem(input);
+        assertEquals(expected, new GraphPoet(new StringReader(text)).poem(input));
+        assertEquals(expected, new GraphPoet(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))).poem(input));
+        assertEquals(expected, new GraphPoet(createCorpusFile(text).toPath()).poem(input));
+    }
+
+    @Test
+    public void testBridgeIndexSamePoems() throws IOException {
+        File corpus = createCorpusFile("To explore strange new worlds\nTo seek out new life and new civilizations");
+        GraphPoet poet = new GraphPoet(corpus);
+        GraphPoet indexed = poet.withBridgeIndex(2);
+        for (String input : new String[] {"Seek to explore new and exciting synergies!",
+                "To Seek Life", "explore new explore new", "Hello, world!"}) {
+            assertEquals(poet.poem(input), indexed.poem(input));
+            assertEquals(poet.poem(input), indexed.poem(input));
+        }
+    }
+
+    @Test
+    public void testAddTextCountsBoundaryPair() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("alpha beta"));
+        assertEquals("beta delta", poet.poem("beta delta"));
+        poet.addText("gamma delta");
+        // beta -> gamma spans the boundary between the corpus and the added text
+        assertEquals("beta gamma delta", poet.poem("beta delta"));
+        assertEquals(new GraphPoet(new StringReader("alpha beta\ngamma delta")).poem("alpha gamma"),
+                poet.poem("alpha gamma"));
+    }
+
+    @Test
+    public void testAddTextWithoutWords() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("one two"));
+        poet.addText("  \n ");
+        poet.addText("three");
+        assertEquals("one two three", poet.poem("one three"));
+    }
+
+    @Test
+    public void testAddCorpus() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("To explore strange new worlds"));
+        poet.addCorpus(createCorpusFile("To seek out new life and new civilizations").toPath());
+        assertEquals("Seek to explore strange new life and exciting synergies!",
+                poet.poem("Seek to explore new and exciting synergies!"));
+    }
+
+    @Test
+    public void testAddTextInvalidatesBridgeIndex() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("a b c x y z")).withBridgeIndex(10);
+        assertEquals("a b c", poet.poem("a c"));
+        assertEquals("x y z", poet.poem("x z"));
+        poet.addText("a d c a d c");
+        assertEquals("a d c", poet.poem("a c"));
+        assertEquals("x y z", poet.poem("x z"));
+    }
+
+    @Test
+    public void testBridgeIndexPoetIsIndependent() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("a b"));
+        GraphPoet indexed = poet.withBridgeIndex(10);
+        poet.addText("c");
+        assertEquals("a b c", poet.poem("a c"));
+        assertEquals("a c", indexed.poem("a c"));
+        indexed.addText("d");
+        assertEquals("a b d", indexed.poem("a d"));
+        assertEquals("a d", poet.poem("a d"));
+    }
+
+    @Test
+    public void testPoemCacheSamePoems() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader(
+                "To explore strange new worlds\nTo seek out new life and new civilizations"));
+        GraphPoet cached = poet.withPoemCache(2).withBridgeIndex(10);
+        List<String> inputs = List.of("Seek to explore new and exciting synergies!",
+                "To Seek Life", "explore new explore new", "Hello, world!");
+        for (int i = 0; i < 2; i++) {
+            for (String input : inputs) {
+                assertEquals(poet.poem(input), cached.poem(input));
+            }
+        }
+        assertEquals(poet.poems(inputs), cached.poems(inputs));
+        CacheStats stats = cached.cacheStats();
+        assertEquals(2, stats.poemSize());
+        assertEquals(12, stats.poemHits() + stats.poemMisses());
+        assertTrue(stats.toString(), stats.bridgeHits() > 0);
+    }
+
+    @Test
+    public void testAddTextInvalidatesPoemCache() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("a b c")).withPoemCache(10);
+        assertEquals("a b c", poet.poem("a c"));
+        assertEquals("a b c", poet.poem("a c"));
+        assertEquals(1, poet.cacheStats().poemHits());
+        poet.addText("a d c a d c");
+        assertEquals("a d c", poet.poem("a c"));
+        assertEquals(1, poet.cacheStats().poemHits());
+        assertEquals(2, poet.cacheStats().poemMisses());
+    }
+
+    @Test
+    public void testCacheStatsWithoutCaches() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("a b c"));
+        poet.poem("a c");
+        CacheStats stats = poet.cacheStats();
+        assertEquals(0, stats.bridgeHits() + stats.bridgeMisses() + stats.poemHits() + stats.poemMisses());
+        assertEquals(0, stats.poemHitRate(), 0);
+    }
+
+    @Test
+    public void testPoemsDuringUpdates() throws Exception {
+        GraphPoet poet = new GraphPoet(new StringReader("a b c")).withBridgeIndex(10);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                poet.addText("a d c a d c");
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            String poem = poet.poem("a c");
+            assertTrue(poem, poem.equals("a b c") || poem.equals("a d c"));
+        }
+        writer.join();
+        assertEquals("a d c", poet.poem("a c"));
+    }
+
+    private static final String[] BATCH_INPUTS = {
+        "Seek to explore new and exciting synergies!", "To Seek Life", "", "  explore new  ",
+        "Hello, world!", "\u000Bto seek\u000B", "new and new and new",
+    };
+
+    private List<String> expectedPoems(GraphPoet poet, List<String> inputs) {
+        List<String> poems = new ArrayList<>();
+        for (String input : inputs) {
+            poems.add(poet.poem(input));
+        }
+        return poems;
+    }
+
+    private List<String> batchInputs(int count) {
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            inputs.add(BATCH_INPUTS[i % BATCH_INPUTS.length]);
+        }
+        return inputs;
+    }
+
+    @Test
+    public void testPoemsFromList() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader(
+                "To explore strange new worlds\nTo seek out new life and new civilizations"));
+        List<String> inputs = batchInputs(1000);
+        List<String> expected = expectedPoems(poet, inputs);
+        assertEquals(expected, poet.poems(inputs));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertEquals(expected, poet.poems(inputs, executor));
+            assertEquals(expected, poet.withBridgeIndex(4).poems(inputs, executor));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Collections.emptyList(), poet.poems(Collections.emptyList()));
+    }
+
+    @Test
+    public void testPoemsFromStream() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader(
+                "To explore strange new worlds\nTo seek out new life and new civilizations"));
+        List<String> inputs = batchInputs(500);
+        List<String> expected = expectedPoems(poet, inputs);
+        assertEquals(expected, poet.poems(inputs.stream()).collect(Collectors.toList()));
+        assertEquals(expected, poet.poems(inputs.parallelStream()).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPoemsFromFile() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader(
+                "To explore strange new worlds\nTo seek out new life and new civilizations"));
+        List<String> inputs = batchInputs(40000);
+        Path in = Files.createTempFile("poem-inputs", ".txt");
+        Path out = Files.createTempFile("poem-outputs", ".txt");
+        try {
+            Files.write(in, inputs, StandardCharsets.UTF_8);
+            poet.poems(in, out);
+            assertEquals(expectedPoems(poet, inputs), Files.readAllLines(out, StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(in);
+            Files.deleteIfExists(out);
+        }
+    }
+
+    private String streamPoem(GraphPoet poet, String input) throws IOException {
+        StringWriter output = new StringWriter();
+        poet.poem(new StringReader(input), output);
+        return output.toString();
+    }
+
+    @Test
+    public void testStreamingPoemMatchesPoem() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader(
+                "To explore strange new worlds\nTo seek out new life and new civilizations"));
+        String[] inputs = {
+            "", "   ", "Seek to explore new and exciting synergies!", "\u000B", "\u000B \u0001 seek",
+            "seek \u0001\u000B", "seek \u000B out\u0001 ", "\u0001seek\u0001 life\u0001\u0001",
+        };
+        for (String input : inputs) {
+            assertEquals(poet.poem(input), streamPoem(poet, input));
+        }
+    }
+
+    @Test
+    public void testStreamingLongPoem() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader(
+                "To explore strange new worlds\nTo seek out new life and new civilizations"));
+        StringBuilder input = new StringBuilder("\u0001 ");
+        Random random = new Random(3);
+        String[] words = {"seek", "explore", "new", "and", "\u000B", "life", "\u0002\u0003", "Worlds!"};
+        for (int i = 0; i < 100000; i++) {
+            input.append(words[random.nextInt(words.length)]).append(i % 17 == 0 ? "\n" : " ");
+        }
+        input.append("\u000B \u0001");
+        assertEquals(poet.poem(input.toString()), streamPoem(poet, input.toString()));
+    }
+
+    @Test
+    public void testStreamingPoemOverChannels() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("caf\u00E9 cr\u00E8me br\u00FBl\u00E9e"));
+        String input = "  Caf\u00E9 br\u00FBl\u00E9e \u2603 ";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        poet.poem(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(output));
+        assertArrayEquals(poet.poem(input).getBytes(StandardCharsets.UTF_8), output.toByteArray());
+        assertEquals("Caf\u00E9 cr\u00E8me br\u00FBl\u00E9e \u2603", poet.poem(input));
+    }
+
+    @Test
+    public void testWindowForgetsOldPairs() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("")).withWindow(3).withMetrics();
+        PoetMetrics metrics = poet.metrics().get();
+        poet.addText("alpha bravo charlie");
+        assertEquals("alpha bravo charlie", poet.poem("alpha charlie"));
+        poet.addText("one two three four");
+        // Only charlie -> one, one -> two and the pairs after them are left
+        assertEquals("alpha charlie", poet.poem("alpha charlie"));
+        assertEquals(3, metrics.getEdgeCount());
+        assertEquals(4, metrics.getVertexCount());
+    }
+
+    @Test
+    public void testWindowBoundsGraph() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("")).withWindow(50).withMetrics();
+        PoetMetrics metrics = poet.metrics().get();
+        Random random = new Random(9);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                text.append("w").append(random.nextInt(i + 10)).append(' ');
+            }
+            poet.addText(text);
+            assertTrue(metrics.getEdgeCount() <= 50);
+            assertTrue(metrics.getVertexCount() <= 51);
+        }
+    }
+
+    @Test
+    public void testWindowBoundsBridgeIndex() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("")).withWindow(20).withBridgeIndex(100);
+        for (int i = 0; i < 500; i++) {
+            // Every round brings new words, and the oldest ones leave the window
+            poet.addText("w" + i + " common w" + (i + 1) + " rare" + i);
+            assertEquals("w" + i + " common w" + (i + 1), poet.poem("w" + i + " w" + (i + 1)));
+            assertTrue("expected change stamps only for words in the window and 100 forgotten ones",
+                    poet.bridgeIndexTrackedWords() <= 2 * (21 + 100));
+        }
+    }
+
+    @Test
+    public void testWindowKeepsUnrelatedBridges() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("alpha bravo charlie delta echo foxtrot golf"))
+                .withBridgeIndex(1000).withWindow(3);
+        String input = "alpha charlie echo golf";
+        String poem = "alpha bravo charlie delta echo foxtrot golf";
+        assertEquals(poem, poet.poem(input));
+        for (int i = 0; i < 2; i++) {
+            poet.addText("zz1 zz2 zz3 zz4 zz5 zz6");
+            assertEquals(poem, poet.poem(input));
+        }
+        CacheStats stats = poet.cacheStats();
+        assertEquals(stats.toString(), 3, stats.bridgeMisses());
+        assertEquals(stats.toString(), 6, stats.bridgeHits());
+    }
+
+    /*
+     * Find the instance of a word held by the current graph of poet.
+     */
+    private static WeakReference<String> vertexOf(GraphPoet poet, String word) {
+        for (String vertex : poet.currentGraph().vertices()) {
+            if (vertex.equals(word)) {
+                return new WeakReference<>(vertex);
+            }
+        }
+        throw new AssertionError("not a vertex: " + word);
+    }
+
+    @Test
+    public void testWindowReclaimsEarlierVersions() throws IOException, InterruptedException {
+        GraphPoet poet = new GraphPoet(new StringReader("anchor")).withWindow(50).withBridgeIndex(10);
+        poet.addText("anchor early");
+        WeakReference<String> early = vertexOf(poet, "early");
+        Random random = new Random(4);
+        for (int i = 0; i < 2_000; i++) {
+            poet.addText("w" + random.nextInt(1_000) + " w" + random.nextInt(1_000));
+            poet.poem("w1 w2");
+            assertTrue(poet.currentGraph().vertices().size() <= 1 + 51);
+            assertTrue(poet.bridgeIndexTrackedWords() <= 2 * (51 + 10));
+        }
+        // anchor was last changed when anchor -> early expired, so its edges
+        // are shared by every later version; they must not keep earlier
+        // versions, and the words only they hold, alive
+        for (int i = 0; i < 50 && early.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("expected a word that left the window to be reclaimed", early.get());
+    }
+
+    @Test
+    public void testWindowRepeatedPairs() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("")).withWindow(2).withMetrics();
+        poet.addText("x y x y x y");
+        assertEquals(2, poet.metrics().get().getEdgeCount());
+        assertEquals(2, poet.metrics().get().getVertexCount());
+    }
+
+    @Test
+    public void testWindowKeepsBaseCorpus() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("alpha bravo charlie")).withWindow(1);
+        poet.addText("charlie bravo");
+        poet.addText("one two three");
+        assertEquals("alpha bravo charlie", poet.poem("alpha charlie"));
+    }
+
+    @Test
+    public void testWindowUnchangedByFailedUpdate() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("")).withWindow(2).withMetrics();
+        poet.addText("alpha bravo charlie");
+        Path corpus = Files.createTempFile("window", ".txt");
+        try {
+            byte[] words = "delta echo foxtrot golf ".getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[words.length + 1];
+            System.arraycopy(words, 0, bytes, 0, words.length);
+            bytes[words.length] = (byte) 0xFF;
+            Files.write(corpus, bytes);
+            try {
+                poet.addCorpus(corpus);
+                fail("expected malformed input to fail");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            Files.deleteIfExists(corpus);
+        }
+        assertEquals("alpha bravo charlie", poet.poem("alpha charlie"));
+        poet.addText("delta");
+        // The window still holds bravo -> charlie, so only alpha -> bravo expired
+        assertEquals(2, poet.metrics().get().getEdgeCount());
+        assertEquals("bravo charlie delta", poet.poem("bravo delta"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowRejectsNoPairs() throws IOException {
+        new GraphPoet(new StringReader("a b")).withWindow(0);
+    }
 }
 
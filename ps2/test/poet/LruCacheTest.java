@@ -0,0 +1,87 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LruCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.merge("a", 1, (old, value) -> value);
+        cache.merge("b", 2, (old, value) -> value);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.merge("c", 3, (old, value) -> value);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+    }
+
+    @Test
+    public void testMergeKeepsChosenValue() {
+        LruCache<String, Integer> cache = new LruCache<>(10);
+        cache.merge("a", 5, Math::max);
+        cache.merge("a", 3, Math::max);
+        assertEquals(Integer.valueOf(5), cache.get("a"));
+        cache.merge("a", 7, Math::max);
+        assertEquals(Integer.valueOf(7), cache.get("a"));
+        cache.merge("a", 0, (old, value) -> null);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testRemoveOnlyMatchingValue() {
+        LruCache<String, String> cache = new LruCache<>(10);
+        cache.merge("a", "x", (old, value) -> value);
+        cache.remove("a", "y");
+        assertEquals("x", cache.get("a"));
+        cache.remove("a", "x");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLargeCacheIsBoundedAcrossSegments() {
+        int capacity = 10_000;
+        LruCache<Integer, Integer> cache = new LruCache<>(capacity);
+        assertEquals(capacity, cache.capacity());
+        for (int i = 0; i < 5 * capacity; i++) {
+            cache.merge(i, i, (old, value) -> value);
+        }
+        assertTrue("size " + cache.size(), cache.size() <= capacity);
+        assertTrue("size " + cache.size(), cache.size() > capacity * 9 / 10);
+        // The most recent keys survive
+        assertEquals(Integer.valueOf(5 * capacity - 1), cache.get(5 * capacity - 1));
+    }
+
+    @Test
+    public void testConcurrentUse() throws InterruptedException {
+        LruCache<Integer, Integer> cache = new LruCache<>(4096);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    int key = (i * 7 + offset) % 8192;
+                    Integer value = cache.get(key);
+                    assertTrue(value == null || value == key);
+                    cache.merge(key, key, (old, neu) -> neu);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(cache.size() <= 4096);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveCapacity() {
+        new LruCache<String, String>(0);
+    }
+}
@@ -0,0 +1,69 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PairWindowTest {
+
+    private static void slide(PairWindow window, String source, String target) {
+        window.add(source, target);
+        while (window.size() > window.capacity()) {
+            window.removeOldest();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoCapacity() {
+        new PairWindow(0);
+    }
+
+    @Test
+    public void testKeepsNewestPairsInOrder() {
+        PairWindow window = new PairWindow(3);
+        for (int i = 0; i < 100; i++) {
+            slide(window, "w" + i, "w" + (i + 1));
+        }
+        assertEquals(3, window.size());
+        assertEquals("w97", window.oldestSource());
+        assertEquals("w98", window.oldestTarget());
+        assertEquals("[w97 -> w98, w98 -> w99, w99 -> w100]", window.toString());
+    }
+
+    @Test
+    public void testRollbackRestoresWindow() {
+        PairWindow window = new PairWindow(2);
+        slide(window, "a", "b");
+        slide(window, "b", "c");
+        window.commit();
+        String before = window.toString();
+
+        window.begin();
+        for (int i = 0; i < 50; i++) {
+            slide(window, "x" + i, "y" + i);
+        }
+        window.rollback();
+        assertEquals(before, window.toString());
+
+        window.begin();
+        slide(window, "c", "d");
+        window.rollback();
+        assertEquals(before, window.toString());
+        slide(window, "c", "d");
+        assertEquals("[b -> c, c -> d]", window.toString());
+    }
+
+    @Test
+    public void testCopyKeepsPairsBeyondNewCapacity() {
+        PairWindow window = new PairWindow(40);
+        for (int i = 0; i < 40; i++) {
+            slide(window, "w" + i, "w" + (i + 1));
+        }
+        PairWindow smaller = new PairWindow(window, 5);
+        assertEquals(40, smaller.size());
+        slide(smaller, "w40", "w41");
+        assertEquals(5, smaller.size());
+        assertEquals("w36", smaller.oldestSource());
+        assertEquals(40, window.size());
+    }
+}
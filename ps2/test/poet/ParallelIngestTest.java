@@ -0,0 +1,69 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import graph.Graph;
+
+public class ParallelIngestTest {
+
+    private static final String CORPUS = "To explore strange new worlds\n"
+            + "To seek out new life and new civilizations\n"
+            + "  to boldly go where no one has gone before. été  ÉTÉ\n";
+
+    private Graph<String> readParallel(String text, int chunkSize) throws IOException {
+        Path file = Files.createTempFile("corpus", ".txt");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return ParallelIngest.read(channel, ForkJoinPool.commonPool(), chunkSize);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void assertSameGraph(String text, Graph<String> expected, Graph<String> actual) {
+        assertEquals(text, new ArrayList<>(expected.vertices()), new ArrayList<>(actual.vertices()));
+        for (String vertex : expected.vertices()) {
+            assertEquals(text, expected.targets(vertex), actual.targets(vertex));
+        }
+    }
+
+    @Test
+    public void testMatchesSequentialForEveryChunkSize() throws IOException {
+        Graph<String> expected = GraphPoet.read(new StringReader(CORPUS));
+        for (int chunkSize = 1; chunkSize <= 24; chunkSize++) {
+            assertSameGraph("chunk size " + chunkSize, expected, readParallel(CORPUS, chunkSize));
+        }
+    }
+
+    @Test
+    public void testEmptyAndSingleWordCorpora() throws IOException {
+        for (String text : new String[] {"", "   \n ", "word", "  word  ", "a b"}) {
+            assertSameGraph(text, GraphPoet.read(new StringReader(text)), readParallel(text, 1));
+        }
+    }
+
+    @Test
+    public void testPoetMatchesSequentialPoet() throws IOException {
+        Path file = Files.createTempFile("corpus", ".txt");
+        try {
+            Files.write(file, CORPUS.getBytes(StandardCharsets.UTF_8));
+            String input = "Seek to explore new and exciting synergies!";
+            assertEquals(new GraphPoet(file).poem(input), GraphPoet.parallel(file).poem(input));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
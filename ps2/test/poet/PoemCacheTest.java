@@ -0,0 +1,50 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PoemCacheTest {
+
+    @Test
+    public void testComputesOncePerVersion() {
+        PoemCache cache = new PoemCache(10);
+        List<String> computed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("A poem", cache.poem("a", 0, input -> {
+                computed.add(input);
+                return "A poem";
+            }));
+        }
+        assertEquals(List.of("a"), computed);
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testNewVersionRecomputes() {
+        PoemCache cache = new PoemCache(10);
+        cache.poem("a", 0, input -> "old");
+        assertEquals("new", cache.poem("a", 1, input -> "new"));
+        assertEquals("new", cache.poem("a", 1, input -> "stale"));
+        // A reader still holding version 0 is not answered from version 1
+        assertEquals("old again", cache.poem("a", 0, input -> "old again"));
+        assertEquals("new", cache.poem("a", 1, input -> "stale"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLongInputsAreNotCached() {
+        PoemCache cache = new PoemCache(10);
+        StringBuilder input = new StringBuilder();
+        while (input.length() <= PoemCache.MAX_INPUT_LENGTH) {
+            input.append("word ");
+        }
+        cache.poem(input.toString(), 0, text -> "poem");
+        assertEquals("again", cache.poem(input.toString(), 0, text -> "again"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.hits() + cache.misses());
+    }
+}
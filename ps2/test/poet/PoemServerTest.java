@@ -0,0 +1,136 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class PoemServerTest {
+
+    private static final String CORPUS = "To explore strange new worlds\nTo seek out new life and new civilizations";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private static GraphPoet poet() throws IOException {
+        return new GraphPoet(new StringReader(CORPUS));
+    }
+
+    private static URI uri(PoemServer server, String path) {
+        return URI.create("http://localhost:" + server.address().getPort() + path);
+    }
+
+    private HttpResponse<String> get(PoemServer server, String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(server, path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String query(String text) {
+        return "/poem?text=" + URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testGetPoem() throws Exception {
+        GraphPoet poet = poet();
+        try (PoemServer server = PoemServer.start(poet, new InetSocketAddress("localhost", 0))) {
+            String input = "Seek to explore new and exciting synergies!";
+            HttpResponse<String> response = get(server, query(input));
+            assertEquals(200, response.statusCode());
+            assertEquals(poet.poem(input), response.body());
+        }
+    }
+
+    @Test
+    public void testPostPoem() throws Exception {
+        GraphPoet poet = poet();
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("Seek to explore new and exciting synergies! \u00e9t\u00e9 ");
+        }
+        try (PoemServer server = PoemServer.start(poet, new InetSocketAddress("localhost", 0))) {
+            HttpRequest request = HttpRequest.newBuilder(uri(server, "/poem"))
+                    .POST(HttpRequest.BodyPublishers.ofString(input.toString(), StandardCharsets.UTF_8)).build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals(poet.poem(input.toString()), response.body());
+        }
+    }
+
+    @Test
+    public void testBadRequests() throws Exception {
+        try (PoemServer server = PoemServer.start(poet(), new InetSocketAddress("localhost", 0))) {
+            assertEquals(400, get(server, "/poem").statusCode());
+            assertEquals(400, get(server, "/poem?other=x").statusCode());
+            HttpRequest delete = HttpRequest.newBuilder(uri(server, "/poem")).DELETE().build();
+            assertEquals(405, client.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode());
+            assertTrue(server.stats(), server.stats().startsWith("{\"requests\":3,\"errors\":3,"));
+        }
+    }
+
+    @Test
+    public void testParameter() {
+        assertNull(PoemServer.parameter(null, "text"));
+        assertNull(PoemServer.parameter("a=1&b=2", "text"));
+        assertEquals("", PoemServer.parameter("text", "text"));
+        assertEquals("new life", PoemServer.parameter("a=1&text=new+life&text=x", "text"));
+        assertEquals("a&b=\u00e9", PoemServer.parameter("te%78t=a%26b%3D%C3%A9", "text"));
+    }
+
+    @Test
+    public void testConcurrentRequestsAndStats() throws Exception {
+        GraphPoet poet = poet();
+        try (PoemServer server = PoemServer.start(poet, new InetSocketAddress("localhost", 0))) {
+            List<String> inputs = new ArrayList<>();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String input = "seek " + (i % 2 == 0 ? "explore" : "civilizations") + " new worlds " + i;
+                inputs.add(input);
+                responses.add(client.sendAsync(HttpRequest.newBuilder(uri(server, query(input))).build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals(poet.poem(inputs.get(i)), responses.get(i).join().body());
+            }
+            HttpResponse<String> stats = get(server, "/stats");
+            assertEquals(200, stats.statusCode());
+            assertTrue(stats.body(), stats.body().startsWith("{\"requests\":50,\"errors\":0,\"inFlight\":0,"));
+            assertTrue(stats.body(), stats.body().contains("\"p99\":"));
+        }
+    }
+
+    @Test
+    public void testStopWaitsForRequestsInFlight() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            input.append("seek new worlds ");
+        }
+        GraphPoet poet = poet();
+        PoemServer server = PoemServer.start(poet, new InetSocketAddress("localhost", 0));
+        CompletableFuture<HttpResponse<String>> response = client.sendAsync(
+                HttpRequest.newBuilder(uri(server, "/poem"))
+                        .POST(HttpRequest.BodyPublishers.ofString(input.toString())).build(),
+                HttpResponse.BodyHandlers.ofString());
+        while (server.stats().startsWith("{\"requests\":0,\"errors\":0,\"inFlight\":0,")) {
+            Thread.sleep(1);
+        }
+        server.stop(Duration.ofSeconds(30));
+        assertEquals(poet.poem(input.toString()), response.join().body());
+        try {
+            get(server, "/stats");
+            fail("expected the server to have stopped listening");
+        } catch (ConnectException e) {
+            // expected
+        }
+    }
+}
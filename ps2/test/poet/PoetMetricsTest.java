@@ -0,0 +1,114 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import graph.GraphMetrics.Operation;
+
+public class PoetMetricsTest {
+
+    private static final String CORPUS = "To explore strange new worlds\nTo seek out new life and new civilizations";
+
+    private static GraphPoet poet() throws IOException {
+        return new GraphPoet(new StringReader(CORPUS));
+    }
+
+    @Test
+    public void testDisabledByDefault() throws IOException {
+        GraphPoet poet = poet();
+        assertFalse(poet.metrics().isPresent());
+        assertFalse(poet.withBridgeIndex(10).metrics().isPresent());
+    }
+
+    @Test
+    public void testMetricsDoNotChangePoems() throws IOException {
+        GraphPoet poet = poet();
+        GraphPoet metered = poet.withMetrics();
+        String input = "Seek to explore new and exciting synergies!";
+        assertEquals(poet.poem(input), metered.poem(input));
+        assertEquals(poet.poems(Arrays.asList(input, input)), metered.poems(Arrays.asList(input, input)));
+    }
+
+    @Test
+    public void testGraphSize() throws IOException {
+        PoetMetrics metrics = poet().withMetrics().metrics().get();
+        assertEquals(10, metrics.getVertexCount());
+        assertEquals(12, metrics.getEdgeCount());
+        assertTrue(metrics.getEstimatedHeapBytes() > 0);
+    }
+
+    @Test
+    public void testIngestion() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader("")).withMetrics();
+        PoetMetrics metrics = poet.metrics().get();
+        poet.addText("one two three");
+        Path corpus = Files.createTempFile("poet-metrics", ".txt");
+        try {
+            Files.write(corpus, "four five\n".getBytes(StandardCharsets.UTF_8));
+            poet.addCorpus(corpus);
+        } finally {
+            Files.delete(corpus);
+        }
+        assertEquals(13 + 10, metrics.getBytesIngested());
+        assertEquals(5, metrics.getWordsIngested());
+        assertTrue(metrics.getIngestSeconds() > 0);
+        assertTrue(metrics.getWordsPerSecond() > 0);
+        assertEquals(5, metrics.getVertexCount());
+        assertEquals(4, metrics.getEdgeCount());
+        assertEquals(4, metrics.graphMetrics().calls(Operation.INCREMENT));
+    }
+
+    @Test
+    public void testBridgeLookupsWithoutCache() throws IOException {
+        GraphPoet poet = poet().withMetrics();
+        PoetMetrics metrics = poet.metrics().get();
+        poet.poem("seek new worlds");
+        assertEquals(2, metrics.getBridgeLookups());
+        assertEquals(2, metrics.getBridgeMisses());
+        assertEquals(0, metrics.getBridgeHits());
+        assertEquals(0, metrics.graphMetrics().calls(Operation.TARGETS));
+        assertEquals(2, metrics.graphMetrics().calls(Operation.FOR_EACH_TARGET));
+    }
+
+    @Test
+    public void testBridgeHitsWithIndex() throws IOException {
+        GraphPoet poet = poet().withBridgeIndex(10).withMetrics();
+        PoetMetrics metrics = poet.metrics().get();
+        poet.poem("seek new worlds");
+        poet.poem("seek new worlds");
+        assertEquals(4, metrics.getBridgeLookups());
+        assertEquals(2, metrics.getBridgeMisses());
+        assertEquals(2, metrics.getBridgeHits());
+        assertEquals(0.5, metrics.getBridgeHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        GraphPoet poet = poet().withMetrics();
+        PoetMetrics metrics = poet.metrics().get();
+        metrics.register("test");
+        try {
+            poet.poem("seek new worlds");
+            PoetMetricsMXBean proxy = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                    new ObjectName("poet:type=PoetMetrics,name=\"test\""), PoetMetricsMXBean.class);
+            assertEquals(2, proxy.getBridgeLookups());
+            assertEquals(10, proxy.getVertexCount());
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                    new ObjectName("poet:type=GraphMetrics,name=\"test\"")));
+        } finally {
+            metrics.unregister("test");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import graph.FrozenGraph;
+import graph.Graph;
+
+public class SnapshotGraphTest {
+
+    private static final String CORPUS = "To explore strange new worlds\n"
+            + "To seek out new life and new civilizations, été Été ÉTÉ";
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("poet", ".snapshot");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRoundTripSameGraph() throws IOException {
+        Graph<String> graph = FrozenGraph.freeze(GraphPoet.read(new StringReader(CORPUS)));
+        SnapshotGraph.write(graph, file);
+        SnapshotGraph loaded = SnapshotGraph.open(file, true);
+        assertEquals(new ArrayList<>(graph.vertices()), new ArrayList<>(loaded.vertices()));
+        for (String vertex : graph.vertices()) {
+            assertEquals(new ArrayList<>(graph.targets(vertex).entrySet()),
+                    new ArrayList<>(loaded.targets(vertex).entrySet()));
+            assertEquals(graph.sources(vertex), loaded.sources(vertex));
+            for (String other : graph.vertices()) {
+                assertEquals(graph.weight(vertex, other), loaded.weight(vertex, other));
+            }
+        }
+        assertFalse(loaded.vertices().contains("missing"));
+        assertEquals(0, loaded.outDegree("missing"));
+    }
+
+    @Test
+    public void testEdgesMatchFrozenGraph() throws IOException {
+        FrozenGraph<String> graph = FrozenGraph.freeze(GraphPoet.read(new StringReader(CORPUS)));
+        SnapshotGraph.write(graph, file);
+        SnapshotGraph loaded = SnapshotGraph.open(file, true);
+        assertEquals(graph.edges().collect(Collectors.toList()), loaded.edges().collect(Collectors.toList()));
+        assertEquals(graph.edges().count(), loaded.edges().parallel().count());
+    }
+
+    @Test
+    public void testEmptyGraph() throws IOException {
+        SnapshotGraph.write(Graph.empty(), file);
+        assertTrue(SnapshotGraph.open(file, true).vertices().isEmpty());
+    }
+
+    @Test
+    public void testLoadedPoetWritesSamePoems() throws IOException {
+        GraphPoet poet = new GraphPoet(new StringReader(CORPUS));
+        poet.save(file);
+        GraphPoet loaded = GraphPoet.load(file);
+        for (String input : new String[] {"Seek to explore new and exciting synergies!", "new new été été"}) {
+            assertEquals(poet.poem(input), loaded.poem(input));
+        }
+    }
+
+    @Test
+    public void testRewriteLeavesLoadedSnapshotReadable() throws IOException {
+        Graph<String> graph = GraphPoet.read(new StringReader(CORPUS));
+        SnapshotGraph.write(graph, file);
+        SnapshotGraph loaded = SnapshotGraph.open(file, true);
+
+        SnapshotGraph.write(GraphPoet.read(new StringReader("a b c")), file);
+        assertEquals(graph.vertices(), loaded.vertices());
+        assertEquals(graph.targets("new"), loaded.targets("new"));
+        assertEquals(3, SnapshotGraph.open(file, true).vertices().size());
+        try (Stream<Path> siblings = Files.list(file.toAbsolutePath().getParent())) {
+            String prefix = file.getFileName() + ".";
+            assertTrue("temporary file left behind",
+                    siblings.noneMatch(sibling -> sibling.getFileName().toString().startsWith(prefix)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsNonSnapshot() throws IOException {
+        Files.write(file, "not a snapshot at all, just some text".getBytes());
+        SnapshotGraph.open(file, false);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTruncatedSnapshot() throws IOException {
+        SnapshotGraph.write(GraphPoet.read(new StringReader(CORPUS)), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        SnapshotGraph.open(file, false);
+    }
+
+    @Test(expected = IOException.class)
+    public void testVerifyDetectsCorruption() throws IOException {
+        SnapshotGraph.write(GraphPoet.read(new StringReader(CORPUS)), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 1);
+        }
+        SnapshotGraph.open(file, true);
+    }
+}
@@ -0,0 +1,113 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringTokenizer;
+
+public class WordScannerTest {
+
+    private List<String> scan(String text, int bufferSize) throws IOException {
+        WordScanner scanner = new WordScanner(new StringReader(text), bufferSize);
+        List<String> words = new ArrayList<>();
+        for (String word = scanner.next(); word != null; word = scanner.next()) {
+            words.add(word);
+        }
+        return words;
+    }
+
+    private List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(text);
+        while (tokenizer.hasMoreTokens()) {
+            words.add(tokenizer.nextToken());
+        }
+        return words;
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        assertEquals(Collections.emptyList(), scan("", 4));
+        assertEquals(Collections.emptyList(), scan(" \t\r\n\f ", 4));
+    }
+
+    @Test
+    public void testSameWordsAsStringTokenizer() throws IOException {
+        String text = "  To explore\tstrange\r\nnew worlds,\fto seek\u000Bout\u00A0new life!  ";
+        assertEquals(tokenize(text), scan(text, 1 << 16));
+    }
+
+    @Test
+    public void testWordsSpanningBuffers() throws IOException {
+        String text = "abcdefghij k lmnopq rs tuvwxyz";
+        for (int bufferSize = 1; bufferSize <= 8; bufferSize++) {
+            assertEquals("buffer size " + bufferSize, tokenize(text), scan(text, bufferSize));
+        }
+    }
+
+    @Test
+    public void testStringInput() throws IOException {
+        String text = " Hello,  World!\nbye";
+        WordScanner scanner = new WordScanner(text);
+        List<String> words = new ArrayList<>();
+        for (String word = scanner.next(); word != null; word = scanner.next()) {
+            words.add(word);
+        }
+        assertEquals(tokenize(text), words);
+    }
+
+    @Test
+    public void testLowerCaseWordIsCanonical() throws IOException {
+        WordTable words = new WordTable();
+        WordScanner scanner = new WordScanner(new StringReader("The THE the \u00C9T\u00C9 \u00E9t\u00E9"), 3);
+        List<String> lowered = new ArrayList<>();
+        while (scanner.advance()) {
+            lowered.add(scanner.lowerCaseWord(words, true));
+        }
+        assertEquals(List.of("the", "the", "the", "\u00E9t\u00E9", "\u00E9t\u00E9"), lowered);
+        assertSame(lowered.get(0), lowered.get(2));
+        assertSame(lowered.get(3), lowered.get(4));
+        assertEquals(2, words.size());
+    }
+
+    @Test
+    public void testLowerCaseWordWithoutAdding() throws IOException {
+        WordTable words = new WordTable();
+        String known = words.intern("seek");
+        WordScanner scanner = new WordScanner("SEEK out");
+        StringBuilder original = new StringBuilder();
+
+        assertTrue(scanner.advance());
+        assertSame(known, scanner.lowerCaseWord(words, false));
+        scanner.appendWord(original);
+        assertTrue(scanner.advance());
+        assertNull(scanner.lowerCaseWord(words, false));
+        assertEquals("out", scanner.lowerCaseWord(null, false));
+        assertFalse(scanner.advance());
+        assertEquals("SEEK", original.toString());
+        assertEquals(1, words.size());
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        WordScanner scanner = new WordScanner("short");
+        for (String text : new String[] {"a much longer  text than before", "", " x ", "new words"}) {
+            scanner.reset(text);
+            List<String> words = new ArrayList<>();
+            for (String word = scanner.next(); word != null; word = scanner.next()) {
+                words.add(word);
+            }
+            assertEquals(tokenize(text), words);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testResetStreamScanner() {
+        new WordScanner(new StringReader("text")).reset("other");
+    }
+}
@@ -0,0 +1,51 @@
+package poet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class WordTableTest {
+
+    /*
+     * Testing strategy:
+     *   intern(): new word, existing word; from chars or from a String
+     *   find(): present, absent; from chars or from a String
+     *   size: small, large enough to resize the table
+     */
+
+    @Test
+    public void testInternReturnsCanonicalInstance() {
+        WordTable words = new WordTable();
+        char[] chars = "xxwordxx".toCharArray();
+        String first = words.intern(chars, 2, 4);
+        assertEquals("word", first);
+        assertSame(first, words.intern(new String("word")));
+        assertSame(first, words.intern("word".toCharArray(), 0, 4));
+        assertEquals(1, words.size());
+    }
+
+    @Test
+    public void testFind() {
+        WordTable words = new WordTable();
+        String word = words.intern("word");
+        assertSame(word, words.find("wordy".toCharArray(), 0, 4));
+        assertSame(word, words.find(new String("word")));
+        assertNull(words.find("wordy".toCharArray(), 0, 5));
+        assertNull(words.find("other"));
+        assertNull(words.find(new char[0], 0, 0));
+        assertEquals(1, words.size());
+    }
+
+    @Test
+    public void testManyWords() {
+        WordTable words = new WordTable();
+        for (int i = 0; i < 10000; i++) {
+            words.intern("w" + i);
+        }
+        assertEquals(10000, words.size());
+        for (int i = 0; i < 10000; i++) {
+            char[] chars = ("w" + i).toCharArray();
+            assertEquals("w" + i, words.find(chars, 0, chars.length));
+        }
+        assertNull(words.find("w10000"));
+    }
+}